@@ -1,14 +1,18 @@
 package eq.uirs.fashionscape;
 
+import eq.uirs.fashionscape.colors.ColorHarmony;
 import eq.uirs.fashionscape.data.ColorType;
 import eq.uirs.fashionscape.panel.SortBy;
 import eq.uirs.fashionscape.swap.RandomizerIntelligence;
+import java.util.ArrayList;
 import java.util.HashMap;
 import net.runelite.api.kit.KitType;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
 import net.runelite.client.config.ConfigSection;
+import net.runelite.client.config.Range;
+import net.runelite.client.config.Units;
 import org.apache.commons.lang3.SerializationUtils;
 
 @ConfigGroup(FashionscapeConfig.GROUP)
@@ -84,6 +88,32 @@ public interface FashionscapeConfig extends Config
 		return false;
 	}
 
+	@ConfigItem(
+		position = 2,
+		keyName = "randomizerHarmony",
+		name = "Colour harmony",
+		description = "How the randomizer matches colours when intelligence is above none",
+		section = randomizerSettings
+	)
+	default ColorHarmony randomizerHarmony()
+	{
+		return ColorHarmony.SIMILAR;
+	}
+
+	@Range(min = 5, max = 1000)
+	@Units(Units.MILLISECONDS)
+	@ConfigItem(
+		position = 3,
+		keyName = "randomizerTimeBudget",
+		name = "Time budget",
+		description = "How long the timed and optimized intelligence settings may spend looking for each outfit",
+		section = randomizerSettings
+	)
+	default int randomizerTimeBudget()
+	{
+		return 30;
+	}
+
 	// region Hidden stuff
 
 	@ConfigItem(
@@ -175,6 +205,25 @@ public interface FashionscapeConfig extends Config
 		return SerializationUtils.serialize(new HashMap<KitType, Integer>());
 	}
 
+	@ConfigItem(
+		keyName = "recentItems",
+		name = "Recent items",
+		description = "Item ids recently picked by the randomizer, per slot (hidden)",
+		hidden = true
+	)
+	default byte[] recentItems()
+	{
+		return SerializationUtils.serialize(new HashMap<KitType, ArrayList<Integer>>());
+	}
+
+	@ConfigItem(
+		keyName = "recentItems",
+		name = "Recent items",
+		description = "Item ids recently picked by the randomizer, per slot (hidden)",
+		hidden = true
+	)
+	void setRecentItems(byte[] recentItemsBytes);
+
 	// endregion
 
 }
@@ -1,11 +1,13 @@
 package eq.uirs.fashionscape;
 
 import com.google.inject.Provides;
+import eq.uirs.fashionscape.colors.OutfitCoherence;
 import eq.uirs.fashionscape.data.ItemInteractions;
 import eq.uirs.fashionscape.panel.FashionscapePanel;
 import eq.uirs.fashionscape.swap.SwapManager;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -19,6 +21,7 @@ import net.runelite.api.InventoryID;
 import net.runelite.api.ItemComposition;
 import net.runelite.api.MenuAction;
 import net.runelite.api.Player;
+import net.runelite.api.events.ClientTick;
 import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.ItemContainerChanged;
 import net.runelite.api.events.MenuOptionClicked;
@@ -49,17 +52,14 @@ public class FashionscapePlugin extends Plugin
 	private static final Pattern PAREN_REPLACE = Pattern.compile("\\(.*\\)");
 
 	private static final String COPY_PLAYER = "Copy-outfit";
-	private static final Set<Integer> ITEM_ID_DUPES = new HashSet<>();
+	// never modified once published
+	private static volatile BitSet itemIdDupes = new BitSet();
 
 	// combined set of all items to skip when searching (bad items, dupes, non-standard if applicable)
-	public static Set<Integer> getItemIdsToExclude(FashionscapeConfig config)
+	public static BitSet getItemIdsToExclude(FashionscapeConfig config)
 	{
-		Set<Integer> result = ITEM_ID_DUPES;
-		result.addAll(ItemInteractions.BAD_ITEM_IDS);
-		if (config.excludeNonStandardItems())
-		{
-			result.addAll(ItemInteractions.NON_STANDARD_ITEMS);
-		}
+		BitSet result = ItemInteractions.excludedItemIds(config.excludeNonStandardItems());
+		result.or(itemIdDupes);
 		return result;
 	}
 
@@ -93,6 +93,9 @@ public class FashionscapePlugin extends Plugin
 	@Inject
 	private SwapManager swapManager;
 
+	@Inject
+	private OutfitCoherence outfitCoherence;
+
 	@Inject
 	private FashionscapeConfig config;
 
@@ -124,6 +127,7 @@ public class FashionscapePlugin extends Plugin
 		clientThread.invokeLater(() -> {
 			populateDupes();
 			swapManager.startUp();
+			outfitCoherence.startUp();
 		});
 	}
 
@@ -132,8 +136,9 @@ public class FashionscapePlugin extends Plugin
 	{
 		menuManager.get().removePlayerMenuItem(COPY_PLAYER);
 		clientThread.invokeLater(() -> swapManager.shutDown());
+		outfitCoherence.shutDown();
 		clientToolbar.removeNavigation(navButton);
-		ITEM_ID_DUPES.clear();
+		itemIdDupes = new BitSet();
 	}
 
 	@Subscribe
@@ -150,6 +155,12 @@ public class FashionscapePlugin extends Plugin
 		}
 	}
 
+	@Subscribe
+	public void onClientTick(ClientTick event)
+	{
+		swapManager.onClientTick();
+	}
+
 	@Subscribe
 	public void onItemContainerChanged(ItemContainerChanged event)
 	{
@@ -216,14 +227,14 @@ public class FashionscapePlugin extends Plugin
 
 	private void populateDupes()
 	{
-		ITEM_ID_DUPES.clear();
+		BitSet dupes = new BitSet();
 		Set<Integer> ids = new HashSet<>();
 		Set<ItemDupeData> itemUniques = new HashSet<>();
-		Set<Integer> skips = FashionscapePlugin.getItemIdsToExclude(config);
+		BitSet skips = FashionscapePlugin.getItemIdsToExclude(config);
 		for (int i = 0; i < client.getItemCount(); i++)
 		{
 			int canonical = itemManager.canonicalize(i);
-			if (skips.contains(canonical))
+			if (skips.get(canonical))
 			{
 				continue;
 			}
@@ -233,7 +244,7 @@ public class FashionscapePlugin extends Plugin
 			boolean membersObject = config.excludeMembersItems() && itemComposition.isMembers();
 			if (badItemName || membersObject)
 			{
-				ITEM_ID_DUPES.add(canonical);
+				dupes.set(canonical);
 				continue;
 			}
 			ItemStats itemStats = itemManager.getItemStats(canonical);
@@ -247,13 +258,16 @@ public class FashionscapePlugin extends Plugin
 				);
 				if (itemUniques.contains(itemDupeData))
 				{
-					ITEM_ID_DUPES.add(canonical);
+					dupes.set(canonical);
 					continue;
 				}
 				itemUniques.add(itemDupeData);
 				ids.add(itemComposition.getId());
 			}
 		}
+		itemIdDupes = dupes;
+		// exclusions may have changed
+		swapManager.invalidateCandidatePools();
 	}
 
 	private void refreshMenuEntries()
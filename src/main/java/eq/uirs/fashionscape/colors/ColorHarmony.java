@@ -0,0 +1,80 @@
+package eq.uirs.fashionscape.colors;
+
+import java.awt.Color;
+
+/**
+ * How candidate colours should relate to an outfit when scoring. Apart from SIMILAR (plain colour distance),
+ * modes score by hue relationships to the outfit's dominant hues, using affinity tables computed on class load.
+ */
+public enum ColorHarmony
+{
+	SIMILAR("Similar"),
+	COMPLEMENTARY("Complementary", 180),
+	// same-hue parts of an analogous scheme are as good a match as neighbouring hues
+	ANALOGOUS("Analogous", 0, 30),
+	TRIADIC("Triadic", 120),
+	MONOCHROME("Monochrome", 0);
+
+	// hue value of colors with too little saturation or brightness to have a meaningful hue
+	static final int NEUTRAL = -1;
+	// how far (in degrees) a hue delta can stray from a target angle while still being a decent match
+	private static final double SPREAD = 15.0;
+	// neutral colors go with anything, but shouldn't score as well as a real match
+	private static final double NEUTRAL_AFFINITY = 0.5;
+
+	private final String displayName;
+	// affinity (0-1) indexed by hue delta in whole degrees (0-180), null for non-hue modes
+	private final double[] affinities;
+
+	ColorHarmony(String displayName, int... targetDeltas)
+	{
+		this.displayName = displayName;
+		if (targetDeltas.length == 0)
+		{
+			this.affinities = null;
+			return;
+		}
+		this.affinities = new double[181];
+		for (int delta = 0; delta <= 180; delta++)
+		{
+			for (int target : targetDeltas)
+			{
+				double d = delta - target;
+				affinities[delta] = Math.max(affinities[delta], Math.exp(-(d * d) / (2 * SPREAD * SPREAD)));
+			}
+		}
+	}
+
+	public boolean isHueBased()
+	{
+		return affinities != null;
+	}
+
+	// only valid for hue-based modes
+	double affinity(int hue1, int hue2)
+	{
+		if (hue1 == NEUTRAL || hue2 == NEUTRAL)
+		{
+			return NEUTRAL_AFFINITY;
+		}
+		int delta = Math.abs(hue1 - hue2) % 360;
+		return affinities[delta > 180 ? 360 - delta : delta];
+	}
+
+	// hue in whole degrees (0-359), or NEUTRAL for greys and near blacks/whites
+	static int hueOf(int rgb)
+	{
+		float[] hsb = Color.RGBtoHSB((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF, null);
+		if (hsb[1] < 0.15f || hsb[2] < 0.1f)
+		{
+			return NEUTRAL;
+		}
+		return Math.round(hsb[0] * 360) % 360;
+	}
+
+	@Override
+	public String toString()
+	{
+		return displayName;
+	}
+}
@@ -8,22 +8,18 @@ import eq.uirs.fashionscape.data.Colorable;
 import eq.uirs.fashionscape.data.kit.JawIcon;
 import eq.uirs.fashionscape.data.kit.JawKit;
 import eq.uirs.fashionscape.swap.SwapManager;
-import java.awt.Color;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
 import net.runelite.api.Player;
@@ -34,23 +30,22 @@ import net.runelite.api.kit.KitType;
 @Singleton
 public class ColorScorer
 {
+	// number of most prominent hue bins in an outfit that harmony modes score against
+	private static final int DOMINANT_HUES = 3;
+
 	private final Client client;
 	private final SwapManager swapManager;
 
-	private final Map<Integer, GenderItemColors> allColors;
-	private final Map<KitType, List<ItemColorInfo>> kitColors = new ConcurrentHashMap<>();
-	private final Map<ColorType, Colorable> playerColors = new ConcurrentHashMap<>();
+	// item id -> colors, resolved once per gender. the unknown-gender table only has gender-neutral items
+	private final Map<Integer, List<ItemColorInfo>> mascColors = new HashMap<>();
+	private final Map<Integer, List<ItemColorInfo>> femColors = new HashMap<>();
+	private final Map<Integer, List<ItemColorInfo>> unknownGenderColors = new HashMap<>();
+	private final Palette palette = new Palette();
 
-	private Integer gender;
-
-	@Value
-	private static class Score
-	{
-		// color similarity (scaled 0-1)
-		double match;
-		// area percentage (0-1) of the match, relative to item or player
-		double percentage;
-	}
+	// one of the above tables, swapped out whole when gender changes
+	private volatile Map<Integer, List<ItemColorInfo>> activeColors = unknownGenderColors;
+	// incremented whenever the active table changes, so that colors derived from it can be invalidated
+	private volatile int genderVersion = 0;
 
 	@Inject
 	ColorScorer(Client client, SwapManager swapManager, Gson baseGson)
@@ -67,18 +62,60 @@ public class ColorScorer
 			Type type = new TypeToken<Map<Integer, GenderItemColors>>()
 			{
 			}.getType();
-			allColors = new ConcurrentHashMap<>(gson.fromJson(reader, type));
+			Map<Integer, GenderItemColors> allColors = gson.fromJson(reader, type);
+			allColors.forEach(this::addGenderColors);
+		}
+	}
+
+	private void addGenderColors(int itemId, GenderItemColors genderColors)
+	{
+		if (genderColors.any != null)
+		{
+			mascColors.put(itemId, genderColors.any.itemColorInfo);
+			femColors.put(itemId, genderColors.any.itemColorInfo);
+			unknownGenderColors.put(itemId, genderColors.any.itemColorInfo);
+			return;
+		}
+		if (genderColors.masc != null)
+		{
+			mascColors.put(itemId, genderColors.masc.itemColorInfo);
+		}
+		if (genderColors.fem != null)
+		{
+			femColors.put(itemId, genderColors.fem.itemColorInfo);
+		}
+	}
+
+	/**
+	 * switches item colors to those of the given gender (0 = masc, 1 = fem, null if unknown)
+	 */
+	public void setGender(@Nullable Integer gender)
+	{
+		Map<Integer, List<ItemColorInfo>> colors;
+		if (gender == null)
+		{
+			colors = unknownGenderColors;
 		}
 		else
 		{
-			allColors = new ConcurrentHashMap<>();
+			colors = gender == 0 ? mascColors : femColors;
 		}
+		if (colors != activeColors)
+		{
+			activeColors = colors;
+			genderVersion++;
+		}
+	}
+
+	int getGenderVersion()
+	{
+		return genderVersion;
 	}
 
 	// this should be called before scoring if relying on current player swaps
 	public void updatePlayerInfo()
 	{
-		kitColors.clear();
+		palette.clear();
 		Player player = client.getLocalPlayer();
 		if (player == null)
 		{
@@ -89,59 +126,96 @@ public class ColorScorer
 		{
 			return;
 		}
-		playerColors.clear();
-		playerColors.putAll(swapManager.swappedColorsMap());
-		gender = composition.getGender();
+		fillPalette(palette);
+	}
+
+	// puts the colors of all current swaps into the palette
+	void fillPalette(Palette target)
+	{
+		swapManager.swappedColorsMap().forEach((type, colorable) -> {
+			if (colorable != null)
+			{
+				target.put(Palette.source(type), colorsOf(colorable));
+			}
+		});
 		for (KitType slot : KitType.values())
 		{
 			Integer itemId = swapManager.swappedItemIdIn(slot);
-			if (itemId != null)
+			if (slot == KitType.JAW)
+			{
+				List<ItemColorInfo> jawColors = jawColorsFor(itemId, swapManager.swappedIcon());
+				if (!jawColors.isEmpty())
+				{
+					target.put(Palette.source(slot), jawColors);
+				}
+			}
+			else if (itemId != null)
 			{
-				kitColors.put(slot, colorsFor(itemId));
+				target.put(Palette.source(slot), colorsFor(itemId));
 			}
 		}
-		JawIcon icon = swapManager.swappedIcon();
+	}
+
+	// the icon's colors take priority over the jaw item's, since they share a palette source
+	List<ItemColorInfo> jawColorsFor(@Nullable Integer itemId, @Nullable JawIcon icon)
+	{
 		if (icon != null)
 		{
-			Integer iconItemId = JawKit.NO_JAW.getIconItemId(icon);
-			if (iconItemId != null)
+			List<ItemColorInfo> iconColors = colorsFor(icon);
+			if (!iconColors.isEmpty())
 			{
-				kitColors.put(KitType.JAW, colorsFor(iconItemId));
+				return iconColors;
 			}
 		}
+		return itemId != null && itemId >= 0 ? colorsFor(itemId) : Collections.emptyList();
 	}
 
-	public void setPlayerInfo(Map<KitType, Integer> itemIds, Map<ColorType, Colorable> colors)
+	/**
+	 * creates a palette of the current swaps, for scoring off the client thread without touching the shared one
+	 */
+	public Palette createPlayerPalette()
 	{
-		kitColors.clear();
-		Player player = client.getLocalPlayer();
-		if (player == null)
-		{
-			return;
-		}
-		playerColors.clear();
-		playerColors.putAll(colors);
-		PlayerComposition composition = player.getPlayerComposition();
-		gender = composition.getGender();
-		for (Map.Entry<KitType, Integer> entry : itemIds.entrySet())
-		{
-			kitColors.put(entry.getKey(), colorsFor(entry.getValue()));
-		}
+		Palette result = new Palette();
+		fillPalette(result);
+		return result;
+	}
+
+	/**
+	 * creates a standalone palette (e.g., for randomizer outfits) that isn't tied to the player's current swaps
+	 */
+	public Palette createPalette(Map<KitType, Integer> itemIds, Map<ColorType, Colorable> colors)
+	{
+		Palette result = new Palette();
+		colors.forEach((type, colorable) -> putColor(result, type, colorable));
+		itemIds.forEach((slot, itemId) -> putItem(result, slot, itemId));
+		return result;
 	}
 
-	public void addPlayerInfo(KitType slot, Integer itemId)
+	/**
+	 * creates an outfit score starting from the given items and colors, which can then be changed one piece at a time
+	 */
+	public OutfitScore createOutfitScore(Map<KitType, Integer> itemIds, Map<ColorType, Colorable> colors,
+										 ColorHarmony harmony)
+	{
+		OutfitScore result = new OutfitScore(this, harmony);
+		colors.forEach(result::putColor);
+		itemIds.forEach(result::putItem);
+		return result;
+	}
+
+	public void putItem(Palette target, KitType slot, @Nullable Integer itemId)
 	{
 		if (itemId != null)
 		{
-			kitColors.put(slot, colorsFor(itemId));
+			target.put(Palette.source(slot), colorsFor(itemId));
 		}
 	}
 
-	public void addPlayerColor(ColorType type, Colorable colorable)
+	public void putColor(Palette target, ColorType type, @Nullable Colorable colorable)
 	{
 		if (colorable != null)
 		{
-			playerColors.put(type, colorable);
+			target.put(Palette.source(type), colorsOf(colorable));
 		}
 	}
 
@@ -151,8 +225,7 @@ public class ColorScorer
 	 */
 	public double score(int itemId, KitType exclude)
 	{
-		List<ItemColorInfo> colors = colorsFor(itemId);
-		return score(colors, exclude, null);
+		return breakdown(itemId, exclude).getScore();
 	}
 
 	/**
@@ -161,99 +234,167 @@ public class ColorScorer
 	 */
 	public double score(Colorable colorable, ColorType exclude)
 	{
-		int rgb = colorable.getColor().getRGB();
-		List<ItemColorInfo> colors = Collections.singletonList(new ItemColorInfo(rgb, 1.0));
-		return score(colors, null, exclude);
+		return breakdown(palette, colorsOf(colorable), Palette.source(exclude)).getScore();
 	}
 
-	private double score(List<ItemColorInfo> colors, KitType excludeKit, ColorType excludeColor)
+	/**
+	 * scores a Colorable against the given palette. safe to call from any thread if the palette isn't shared.
+	 */
+	public double score(Palette target, Colorable colorable, ColorType exclude)
+	{
+		return breakdown(target, colorsOf(colorable), Palette.source(exclude)).getScore();
+	}
+
+	/**
+	 * scores an item against the current player's outfit using the given harmony:
+	 * 1 is a perfect match, 0 is a complete mismatch
+	 */
+	public double score(int itemId, KitType exclude, ColorHarmony harmony)
+	{
+		return score(palette, itemId, exclude, harmony);
+	}
+
+	/**
+	 * scores a Colorable against the current player's outfit using the given harmony:
+	 * 1 is a perfect match, 0 is a complete mismatch
+	 */
+	public double score(Colorable colorable, ColorType exclude, ColorHarmony harmony)
+	{
+		return score(palette, colorable, exclude, harmony);
+	}
+
+	/**
+	 * scores an item against the given palette. safe to call from any thread if the palette isn't shared.
+	 */
+	public double score(Palette target, int itemId, @Nullable KitType exclude, ColorHarmony harmony)
+	{
+		return score(target, colorsFor(itemId), Palette.source(exclude), harmony);
+	}
+
+	/**
+	 * scores a Colorable against the given palette. safe to call from any thread if the palette isn't shared.
+	 */
+	public double score(Palette target, Colorable colorable, @Nullable ColorType exclude, ColorHarmony harmony)
+	{
+		return score(target, colorsOf(colorable), Palette.source(exclude), harmony);
+	}
+
+	private double score(Palette target, List<ItemColorInfo> colors, int excludeSource, ColorHarmony harmony)
+	{
+		if (harmony.isHueBased())
+		{
+			return harmonyScore(target, colors, excludeSource, harmony);
+		}
+		return breakdown(target, colors, excludeSource).getScore();
+	}
+
+	/**
+	 * same as `score`, but keeps per-slot partial results so the score can later be updated with `rescore`
+	 */
+	public ScoreBreakdown breakdown(int itemId, KitType exclude)
+	{
+		return breakdown(palette, colorsFor(itemId), Palette.source(exclude));
+	}
+
+	/**
+	 * updates a breakdown after only the given slot has changed in the player's outfit
+	 */
+	public void rescore(ScoreBreakdown breakdown, KitType slot)
+	{
+		int source = Palette.source(slot);
+		breakdown.update(source, palette.get(source));
+	}
+
+	/**
+	 * updates a breakdown after only the given color type has changed in the player's outfit
+	 */
+	public void rescore(ScoreBreakdown breakdown, ColorType type)
+	{
+		int source = Palette.source(type);
+		breakdown.update(source, palette.get(source));
+	}
+
+	private ScoreBreakdown breakdown(Palette target, List<ItemColorInfo> colors, int excludeSource)
+	{
+		ScoreBreakdown breakdown = new ScoreBreakdown(colors, excludeSource);
+		breakdown.updateAll(target);
+		return breakdown;
+	}
+
+	// area-weighted hue affinity of the colors to the outfit's dominant hues
+	double harmonyScore(Palette target, List<ItemColorInfo> colors, int excludeSource,
+								ColorHarmony harmony)
 	{
 		if (colors.isEmpty())
 		{
 			return 0;
 		}
-		Map<Integer, Double> playerInfo = getPlayerRgbInfo(excludeKit, excludeColor);
-		if (playerInfo.isEmpty())
+		double[] hueWeights = target.hueWeights(excludeSource);
+		int[] dominantHues = new int[DOMINANT_HUES];
+		double[] dominantWeights = new double[DOMINANT_HUES];
+		double totalWeight = 0;
+		for (int i = 0; i < DOMINANT_HUES; i++)
 		{
-			return 0;
+			int best = -1;
+			for (int bin = 0; bin < hueWeights.length; bin++)
+			{
+				if (hueWeights[bin] > 0 && (best < 0 || hueWeights[bin] > hueWeights[best]))
+				{
+					best = bin;
+				}
+			}
+			if (best < 0)
+			{
+				break;
+			}
+			dominantHues[i] = Palette.binHue(best);
+			dominantWeights[i] = hueWeights[best];
+			totalWeight += hueWeights[best];
+			hueWeights[best] = 0;
 		}
-		// compute an aggregate score relative to the item/color target
-		List<Score> scoresTarget = new ArrayList<>();
-		for (ItemColorInfo c : colors)
+		if (totalWeight <= 0)
 		{
-			playerInfo.entrySet().stream()
-				.min(Comparator.comparingDouble(e -> colorDistance(c.rgb, e.getKey())))
-				.map(e -> new Score(1.0 - colorDistance(c.rgb, e.getKey()), c.pct))
-				.ifPresent(scoresTarget::add);
+			return 0;
 		}
-		double targetScore = scoresTarget.stream()
-			.mapToDouble(s -> Math.pow(s.match, 2) * s.percentage)
-			.sum();
-		// compute an aggregate score relative to the player
-		List<Score> scoresPlayer = new ArrayList<>();
-		for (Map.Entry<Integer, Double> e : playerInfo.entrySet())
+		double score = 0;
+		for (ItemColorInfo c : colors)
 		{
-			colors.stream()
-				.min(Comparator.comparingDouble(c -> colorDistance(c.rgb, e.getKey())))
-				.map(c -> new Score(1.0 - colorDistance(c.rgb, e.getKey()), e.getValue()))
-				.ifPresent(scoresPlayer::add);
+			double affinity = 0;
+			for (int i = 0; i < DOMINANT_HUES; i++)
+			{
+				if (dominantWeights[i] > 0)
+				{
+					affinity += harmony.affinity(c.hue, dominantHues[i]) * dominantWeights[i];
+				}
+			}
+			score += affinity / totalWeight * c.pct;
 		}
-		double playerScore = scoresPlayer.stream()
-			.mapToDouble(s -> Math.pow(s.match, 2) * s.percentage)
-			.sum();
-		// more weighting in relation to the target itself seems to yield better results
-		return (3.0 * targetScore + playerScore) / 4.0;
+		return score;
 	}
 
 	// Standard Euclidean color distance scaled from 0 (best) to 1 (worst)
-	private double colorDistance(int c1, int c2)
+	static double colorDistance(int c1, int c2)
 	{
-		Color color1 = new Color(c1);
-		Color color2 = new Color(c2);
-		double deltaR = Math.abs(color1.getRed() - color2.getRed()) / 255f;
-		double deltaG = Math.abs(color1.getGreen() - color2.getGreen()) / 255f;
-		double deltaB = Math.abs(color1.getBlue() - color2.getBlue()) / 255f;
+		double deltaR = Math.abs(((c1 >> 16) & 0xFF) - ((c2 >> 16) & 0xFF)) / 255f;
+		double deltaG = Math.abs(((c1 >> 8) & 0xFF) - ((c2 >> 8) & 0xFF)) / 255f;
+		double deltaB = Math.abs((c1 & 0xFF) - (c2 & 0xFF)) / 255f;
 		return Math.sqrt((Math.pow(deltaR, 2) + Math.pow(deltaG, 2) + Math.pow(deltaB, 2)) / 3.0);
 	}
 
-	private List<ItemColorInfo> colorsFor(int itemId)
+	static List<ItemColorInfo> colorsOf(Colorable colorable)
 	{
-		GenderItemColors genderColors = allColors.get(itemId);
-		if (genderColors != null)
-		{
-			if (genderColors.any != null)
-			{
-				return genderColors.any.itemColorInfo;
-			}
-			else
-			{
-				switch (gender)
-				{
-					case 0:
-						return genderColors.masc.itemColorInfo;
-					case 1:
-						return genderColors.fem.itemColorInfo;
-				}
-			}
-		}
-		return new ArrayList<>();
+		int rgb = colorable.getColor().getRGB();
+		return Collections.singletonList(new ItemColorInfo(rgb, 1.0));
+	}
+
+	List<ItemColorInfo> colorsFor(int itemId)
+	{
+		return activeColors.getOrDefault(itemId, Collections.emptyList());
 	}
 
-	// Maps rgb -> summed percentage in player, excluding the given slot or color type
-	private Map<Integer, Double> getPlayerRgbInfo(KitType excludeKit, ColorType excludeColor)
+	List<ItemColorInfo> colorsFor(JawIcon icon)
 	{
-		Map<Integer, Double> unscaled = kitColors.entrySet().stream()
-			.filter(e -> e.getKey() != excludeKit)
-			.map(Map.Entry::getValue)
-			.flatMap(List::stream)
-			.collect(Collectors.toMap(ItemColorInfo::getRgb, ItemColorInfo::getPct, Double::sum));
-		Map<Integer, Double> unscaledColors = playerColors.entrySet().stream()
-			.filter(e -> e.getKey() != excludeColor)
-			.map(Map.Entry::getValue)
-			.collect(Collectors.toMap(c -> c.getColor().getRGB(), c -> 1.0, Double::sum));
-		unscaledColors.forEach((rgb, score) -> unscaled.merge(rgb, score, Double::sum));
-		final Double scale = unscaled.values().stream().mapToDouble(d -> d).sum();
-		return unscaled.entrySet().stream()
-			.collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue() / scale));
+		Integer iconItemId = JawKit.NO_JAW.getIconItemId(icon);
+		return iconItemId != null ? colorsFor(iconItemId) : Collections.emptyList();
 	}
 }
@@ -7,4 +7,13 @@ public class ItemColorInfo
 {
 	public int rgb;
 	public double pct;
+	// whole degrees, or ColorHarmony.NEUTRAL
+	public int hue;
+
+	public ItemColorInfo(int rgb, double pct)
+	{
+		this.rgb = rgb;
+		this.pct = pct;
+		this.hue = ColorHarmony.hueOf(rgb);
+	}
 }
@@ -0,0 +1,224 @@
+package eq.uirs.fashionscape.colors;
+
+import eq.uirs.fashionscape.data.ColorType;
+import eq.uirs.fashionscape.data.Colorable;
+import eq.uirs.fashionscape.swap.SwapManager;
+import eq.uirs.fashionscape.swap.event.ColorChangedListener;
+import eq.uirs.fashionscape.swap.event.IconChangedListener;
+import eq.uirs.fashionscape.swap.event.ItemChangedListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.Value;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Tracks how well the colors of the current outfit go together. Each slot/color is scored against the rest of the
+ * outfit the same way search results are, and those scores are kept up to date one change at a time.
+ */
+@Singleton
+public class OutfitCoherence
+{
+	private static final KitType[] SLOTS = KitType.values();
+	private static final ColorType[] COLOR_TYPES = ColorType.values();
+
+	private final ColorScorer colorScorer;
+	private final SwapManager swapManager;
+
+	// always scored by similarity, the same as the search panel's colour match
+	private final OutfitScore outfitScore;
+	private final List<Consumer<Report>> listeners = new CopyOnWriteArrayList<>();
+
+	private int genderVersion = -1;
+	private Report report = new Report(0, Collections.emptyList());
+
+	@Value
+	public static class SourceScore
+	{
+		// exactly one of slot or type is set
+		@Nullable
+		KitType slot;
+		@Nullable
+		ColorType type;
+		double score;
+	}
+
+	@Value
+	public static class Report
+	{
+		// mean of all source scores, 0 if there's nothing to compare
+		double overall;
+		// worst matching first
+		List<SourceScore> scores;
+	}
+
+	@Inject
+	OutfitCoherence(ColorScorer colorScorer, SwapManager swapManager)
+	{
+		this.colorScorer = colorScorer;
+		this.swapManager = swapManager;
+		this.outfitScore = new OutfitScore(colorScorer, ColorHarmony.SIMILAR);
+	}
+
+	/**
+	 * starts following swap changes. swap listeners are removed when the swap manager shuts down, so this is called
+	 * after every swap manager start up.
+	 */
+	public void startUp()
+	{
+		swapManager.addEventListener(new ItemChangedListener(e -> {
+			if (e.getSlot() == KitType.JAW)
+			{
+				update(Palette.source(KitType.JAW), jawColors());
+				return;
+			}
+			Integer itemId = e.getItemId();
+			List<ItemColorInfo> colors = itemId != null && itemId >= 0 ?
+				colorScorer.colorsFor(itemId) :
+				Collections.emptyList();
+			update(Palette.source(e.getSlot()), colors);
+		}));
+		swapManager.addEventListener(new IconChangedListener(e -> update(Palette.source(KitType.JAW), jawColors())));
+		swapManager.addEventListener(new ColorChangedListener(e -> {
+			Colorable colorable = null;
+			if (e.getColorId() != null)
+			{
+				for (Colorable c : e.getType().getColorables())
+				{
+					if (c.getColorId(e.getType()) == e.getColorId())
+					{
+						colorable = c;
+						break;
+					}
+				}
+			}
+			List<ItemColorInfo> colors = colorable != null ?
+				ColorScorer.colorsOf(colorable) :
+				Collections.emptyList();
+			update(Palette.source(e.getType()), colors);
+		}));
+		refresh();
+	}
+
+	/**
+	 * forgets report listeners, which belong to the (now discarded) panel
+	 */
+	public void shutDown()
+	{
+		listeners.clear();
+	}
+
+	// the jaw item and the icon share a source, so it's derived from both whenever either changes
+	private List<ItemColorInfo> jawColors()
+	{
+		return colorScorer.jawColorsFor(swapManager.swappedItemIdIn(KitType.JAW), swapManager.swappedIcon());
+	}
+
+	/**
+	 * listener is called with a new report after every change (on whichever thread made the change)
+	 */
+	public void addListener(Consumer<Report> listener)
+	{
+		listeners.add(listener);
+	}
+
+	public synchronized Report getReport()
+	{
+		if (genderVersion != colorScorer.getGenderVersion())
+		{
+			rebuild();
+		}
+		return report;
+	}
+
+	/**
+	 * recomputes everything from the current swaps
+	 */
+	public void refresh()
+	{
+		Report report;
+		synchronized (this)
+		{
+			rebuild();
+			report = this.report;
+		}
+		listeners.forEach(l -> l.accept(report));
+	}
+
+	/**
+	 * item colors depend on gender, so everything needs recomputing when it changes
+	 */
+	public void refreshIfGenderChanged()
+	{
+		if (genderVersion != colorScorer.getGenderVersion())
+		{
+			refresh();
+		}
+	}
+
+	private void update(int source, List<ItemColorInfo> colors)
+	{
+		Report report;
+		synchronized (this)
+		{
+			if (genderVersion != colorScorer.getGenderVersion())
+			{
+				// item colors are different now, so nothing incremental can be trusted
+				rebuild();
+			}
+			else
+			{
+				outfitScore.put(source, colors);
+				this.report = createReport();
+			}
+			report = this.report;
+		}
+		listeners.forEach(l -> l.accept(report));
+	}
+
+	private void rebuild()
+	{
+		genderVersion = colorScorer.getGenderVersion();
+		outfitScore.clear();
+		colorScorer.fillPalette(outfitScore.getPalette());
+		outfitScore.rescoreAll();
+		report = createReport();
+	}
+
+	private Report createReport()
+	{
+		List<SourceScore> scores = new ArrayList<>();
+		double total = 0;
+		for (KitType slot : SLOTS)
+		{
+			Double score = outfitScore.sourceScore(Palette.source(slot));
+			if (score != null)
+			{
+				scores.add(new SourceScore(slot, null, score));
+				total += score;
+			}
+		}
+		for (ColorType type : COLOR_TYPES)
+		{
+			Double score = outfitScore.sourceScore(Palette.source(type));
+			if (score != null)
+			{
+				scores.add(new SourceScore(null, type, score));
+				total += score;
+			}
+		}
+		// with one source (or none) there's nothing to be coherent with
+		if (scores.size() < 2)
+		{
+			return new Report(0, Collections.emptyList());
+		}
+		scores.sort(Comparator.comparingDouble(SourceScore::getScore));
+		return new Report(total / scores.size(), scores);
+	}
+}
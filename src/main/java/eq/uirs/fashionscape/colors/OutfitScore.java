@@ -0,0 +1,133 @@
+package eq.uirs.fashionscape.colors;
+
+import eq.uirs.fashionscape.data.ColorType;
+import eq.uirs.fashionscape.data.Colorable;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Colour coherence of a whole outfit: every slot/colour is scored against the rest of the outfit and the scores are
+ * averaged. Kept up to date one change at a time, so that swapping a single piece is cheap to evaluate.
+ * Not thread-safe; use one per thread.
+ */
+public class OutfitScore
+{
+	private final ColorScorer colorScorer;
+	private final ColorHarmony harmony;
+	private final Palette palette = new Palette();
+	// each source's colors scored against every other source, null when the source has no colors.
+	// only kept for harmonies that aren't hue based, since hue scores are cheap to compute from scratch
+	private final ScoreBreakdown[] breakdowns = new ScoreBreakdown[Palette.SOURCE_COUNT];
+
+	OutfitScore(ColorScorer colorScorer, ColorHarmony harmony)
+	{
+		this.colorScorer = colorScorer;
+		this.harmony = harmony;
+	}
+
+	/**
+	 * the outfit's colors. Changes as items/colors are put, so copy what's needed before putting more.
+	 */
+	public Palette getPalette()
+	{
+		return palette;
+	}
+
+	public void putItem(KitType slot, @Nullable Integer itemId)
+	{
+		put(Palette.source(slot), itemId != null ? colorScorer.colorsFor(itemId) : Collections.emptyList());
+	}
+
+	public void putColor(ColorType type, @Nullable Colorable colorable)
+	{
+		put(Palette.source(type), colorable != null ? ColorScorer.colorsOf(colorable) : Collections.emptyList());
+	}
+
+	/**
+	 * mean score of all sources with colors, 0 if there are fewer than two
+	 */
+	public double getScore()
+	{
+		double total = 0;
+		int count = 0;
+		for (int source = 0; source < Palette.SOURCE_COUNT; source++)
+		{
+			Double score = sourceScore(source);
+			if (score != null)
+			{
+				total += score;
+				count++;
+			}
+		}
+		return count < 2 ? 0 : total / count;
+	}
+
+	void put(int source, List<ItemColorInfo> colors)
+	{
+		palette.put(source, colors);
+		if (harmony.isHueBased())
+		{
+			return;
+		}
+		for (int s = 0; s < Palette.SOURCE_COUNT; s++)
+		{
+			if (s != source && breakdowns[s] != null)
+			{
+				breakdowns[s].update(source, colors);
+			}
+		}
+		breakdowns[source] = breakdownFor(source);
+	}
+
+	void clear()
+	{
+		palette.clear();
+		rescoreAll();
+	}
+
+	/**
+	 * recomputes all scores, needed after putting colors into the palette directly
+	 */
+	void rescoreAll()
+	{
+		if (harmony.isHueBased())
+		{
+			return;
+		}
+		for (int source = 0; source < Palette.SOURCE_COUNT; source++)
+		{
+			breakdowns[source] = breakdownFor(source);
+		}
+	}
+
+	// null when the source has no colors
+	@Nullable
+	Double sourceScore(int source)
+	{
+		List<ItemColorInfo> colors = palette.get(source);
+		if (colors.isEmpty())
+		{
+			return null;
+		}
+		if (harmony.isHueBased())
+		{
+			return colorScorer.harmonyScore(palette, colors, source, harmony);
+		}
+		return breakdowns[source].getScore();
+	}
+
+	@Nullable
+	private ScoreBreakdown breakdownFor(int source)
+	{
+		List<ItemColorInfo> colors = palette.get(source);
+		if (colors.isEmpty())
+		{
+			return null;
+		}
+		ScoreBreakdown breakdown = new ScoreBreakdown(colors, source);
+		breakdown.updateAll(palette);
+		return breakdown;
+	}
+}
@@ -0,0 +1,93 @@
+package eq.uirs.fashionscape.colors;
+
+import eq.uirs.fashionscape.data.ColorType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Colours that make up an outfit, grouped by the item slot or colour type they come from ("sources").
+ * Slots and colour types share one index space so that scores can be broken down per source.
+ */
+public class Palette
+{
+	private static final int KIT_COUNT = KitType.values().length;
+	static final int SOURCE_COUNT = KIT_COUNT + ColorType.values().length;
+	// hues are bucketed into 10 degree bins to find an outfit's dominant hues
+	static final int HUE_BINS = 36;
+	private static final int HUE_BIN_SIZE = 360 / HUE_BINS;
+
+	// returns -1 for a null slot, which never matches a source
+	public static int source(@Nullable KitType slot)
+	{
+		return slot != null ? slot.ordinal() : -1;
+	}
+
+	// returns -1 for a null colour type, which never matches a source
+	public static int source(@Nullable ColorType type)
+	{
+		return type != null ? KIT_COUNT + type.ordinal() : -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private final List<ItemColorInfo>[] sources = new List[SOURCE_COUNT];
+	// area-weighted hue histogram of each source (neutral colors excluded), null when empty
+	private final double[][] hueWeights = new double[SOURCE_COUNT][];
+
+	List<ItemColorInfo> get(int source)
+	{
+		List<ItemColorInfo> colors = sources[source];
+		return colors != null ? colors : Collections.emptyList();
+	}
+
+	void put(int source, List<ItemColorInfo> colors)
+	{
+		sources[source] = colors;
+		double[] weights = null;
+		for (ItemColorInfo c : colors)
+		{
+			if (c.hue != ColorHarmony.NEUTRAL)
+			{
+				if (weights == null)
+				{
+					weights = new double[HUE_BINS];
+				}
+				weights[c.hue / HUE_BIN_SIZE] += c.pct;
+			}
+		}
+		hueWeights[source] = weights;
+	}
+
+	void clear()
+	{
+		Arrays.fill(sources, null);
+		Arrays.fill(hueWeights, null);
+	}
+
+	/**
+	 * summed hue histogram over all sources except the excluded one
+	 */
+	double[] hueWeights(int excludeSource)
+	{
+		double[] total = new double[HUE_BINS];
+		for (int source = 0; source < SOURCE_COUNT; source++)
+		{
+			double[] weights = hueWeights[source];
+			if (weights != null && source != excludeSource)
+			{
+				for (int bin = 0; bin < HUE_BINS; bin++)
+				{
+					total[bin] += weights[bin];
+				}
+			}
+		}
+		return total;
+	}
+
+	static int binHue(int bin)
+	{
+		return bin * HUE_BIN_SIZE + HUE_BIN_SIZE / 2;
+	}
+}
@@ -0,0 +1,113 @@
+package eq.uirs.fashionscape.colors;
+
+import java.util.List;
+
+/**
+ * Colour match score of one item (or colour) against an outfit, kept as partial sums per palette source.
+ * When a single slot changes, only that source's contribution needs to be recomputed via `update`.
+ */
+public class ScoreBreakdown
+{
+	private final int[] rgbs;
+	private final double[] pcts;
+	private final int excludedSource;
+
+	// best match (1 - distance) of each target colour within a source, null when the source is empty
+	private final double[][] bestMatches = new double[Palette.SOURCE_COUNT][];
+	// sum of (area percentage * squared best match against the target) for each colour in a source
+	private final double[] playerSums = new double[Palette.SOURCE_COUNT];
+	// summed area percentage of each source, used to scale player sums
+	private final double[] weights = new double[Palette.SOURCE_COUNT];
+
+	ScoreBreakdown(List<ItemColorInfo> colors, int excludedSource)
+	{
+		this.excludedSource = excludedSource;
+		rgbs = new int[colors.size()];
+		pcts = new double[colors.size()];
+		for (int i = 0; i < rgbs.length; i++)
+		{
+			rgbs[i] = colors.get(i).rgb;
+			pcts[i] = colors.get(i).pct;
+		}
+	}
+
+	void updateAll(Palette palette)
+	{
+		for (int source = 0; source < Palette.SOURCE_COUNT; source++)
+		{
+			update(source, palette.get(source));
+		}
+	}
+
+	/**
+	 * replaces the contribution of a single source (ignored if it's the excluded source)
+	 */
+	void update(int source, List<ItemColorInfo> sourceColors)
+	{
+		if (source < 0 || source == excludedSource)
+		{
+			return;
+		}
+		if (sourceColors.isEmpty() || rgbs.length == 0)
+		{
+			bestMatches[source] = null;
+			playerSums[source] = 0;
+			weights[source] = 0;
+			return;
+		}
+		double[] best = new double[rgbs.length];
+		double sum = 0;
+		double weight = 0;
+		for (ItemColorInfo c : sourceColors)
+		{
+			double bestForPlayer = 0;
+			for (int i = 0; i < rgbs.length; i++)
+			{
+				double match = 1.0 - ColorScorer.colorDistance(rgbs[i], c.rgb);
+				best[i] = Math.max(best[i], match);
+				bestForPlayer = Math.max(bestForPlayer, match);
+			}
+			sum += Math.pow(bestForPlayer, 2) * c.pct;
+			weight += c.pct;
+		}
+		bestMatches[source] = best;
+		playerSums[source] = sum;
+		weights[source] = weight;
+	}
+
+	/**
+	 * 1 is a perfect match, 0 is a complete mismatch
+	 */
+	public double getScore()
+	{
+		double totalWeight = 0;
+		double playerSum = 0;
+		for (int source = 0; source < Palette.SOURCE_COUNT; source++)
+		{
+			totalWeight += weights[source];
+			playerSum += playerSums[source];
+		}
+		if (rgbs.length == 0 || totalWeight <= 0)
+		{
+			return 0;
+		}
+		// aggregate score relative to the item/color target
+		double targetScore = 0;
+		for (int i = 0; i < rgbs.length; i++)
+		{
+			double best = 0;
+			for (double[] matches : bestMatches)
+			{
+				if (matches != null)
+				{
+					best = Math.max(best, matches[i]);
+				}
+			}
+			targetScore += Math.pow(best, 2) * pcts[i];
+		}
+		// aggregate score relative to the player
+		double playerScore = playerSum / totalWeight;
+		// more weighting in relation to the target itself seems to yield better results
+		return (3.0 * targetScore + playerScore) / 4.0;
+	}
+}
@@ -7,6 +7,8 @@ import eq.uirs.fashionscape.data.kit.ArmsKit;
 import eq.uirs.fashionscape.data.kit.BootsKit;
 import eq.uirs.fashionscape.data.kit.Kit;
 import eq.uirs.fashionscape.data.kit.LegsKit;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -733,4 +735,104 @@ public class ItemInteractions
 	}
 
 	// endregion
+
+	// region Lookup tables
+
+	// dense copies of the sets/map above, indexed by item or kit id, so hot checks don't box
+	private static final BitSet BAD_ITEM_ID_BITS = toBitSet(BAD_ITEM_IDS);
+	private static final BitSet NON_STANDARD_ITEM_BITS = toBitSet(NON_STANDARD_ITEMS);
+	private static final BitSet HAIR_HELM_BITS = toBitSet(HAIR_HELMS);
+	private static final BitSet NO_JAW_HELM_BITS = toBitSet(NO_JAW_HELMS);
+	private static final BitSet ARMS_TORSO_BITS = toBitSet(ARMS_TORSOS);
+	private static final BitSet DISABLE_BOOT_KIT_BITS = toBitSet(DISABLE_BOOT_KITS);
+	private static final BitSet DISABLE_WEAPON_BITS = toBitSet(DISABLE_WEAPONS);
+	// weapon item id -> idle animation id, default where not mapped
+	private static final int[] WEAPON_IDLE_TABLE = toTable(WEAPON_TO_IDLE, IdleAnimationID.DEFAULT);
+
+	private static BitSet toBitSet(Set<Integer> ids)
+	{
+		BitSet result = new BitSet();
+		ids.forEach(result::set);
+		return result;
+	}
+
+	private static int[] toTable(Map<Integer, Integer> map, int defaultValue)
+	{
+		int size = map.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+		int[] result = new int[size];
+		Arrays.fill(result, defaultValue);
+		map.forEach((key, value) -> result[key] = value);
+		return result;
+	}
+
+	private static boolean test(BitSet bits, int id)
+	{
+		return id >= 0 && bits.get(id);
+	}
+
+	public static boolean isBadItem(int itemId)
+	{
+		return test(BAD_ITEM_ID_BITS, itemId);
+	}
+
+	public static boolean isNonStandardItem(int itemId)
+	{
+		return test(NON_STANDARD_ITEM_BITS, itemId);
+	}
+
+	/**
+	 * whether a helm still shows the hair base model
+	 */
+	public static boolean isHairHelm(int itemId)
+	{
+		return test(HAIR_HELM_BITS, itemId);
+	}
+
+	/**
+	 * whether a helm hides the jaw base model
+	 */
+	public static boolean isNoJawHelm(int itemId)
+	{
+		return test(NO_JAW_HELM_BITS, itemId);
+	}
+
+	/**
+	 * whether a torso still shows the arms base model
+	 */
+	public static boolean isArmsTorso(int itemId)
+	{
+		return test(ARMS_TORSO_BITS, itemId);
+	}
+
+	public static boolean isDisableBootKit(int kitId)
+	{
+		return test(DISABLE_BOOT_KIT_BITS, kitId);
+	}
+
+	public static boolean isDisableWeapon(int itemId)
+	{
+		return test(DISABLE_WEAPON_BITS, itemId);
+	}
+
+	public static int idleAnimationFor(int weaponItemId)
+	{
+		return weaponItemId >= 0 && weaponItemId < WEAPON_IDLE_TABLE.length ?
+			WEAPON_IDLE_TABLE[weaponItemId] :
+			IdleAnimationID.DEFAULT;
+	}
+
+	/**
+	 * a new bitset of the item ids that are always excluded, plus non-standard items if requested
+	 */
+	public static BitSet excludedItemIds(boolean excludeNonStandard)
+	{
+		BitSet result = (BitSet) BAD_ITEM_ID_BITS.clone();
+		if (excludeNonStandard)
+		{
+			result.or(NON_STANDARD_ITEM_BITS);
+		}
+		return result;
+	}
+
+	// endregion
 }
@@ -1,6 +1,7 @@
 package eq.uirs.fashionscape.panel;
 
 import eq.uirs.fashionscape.FashionscapePlugin;
+import eq.uirs.fashionscape.colors.OutfitCoherence;
 import eq.uirs.fashionscape.data.ColorType;
 import eq.uirs.fashionscape.swap.SwapManager;
 import eq.uirs.fashionscape.swap.event.ColorChangedListener;
@@ -24,14 +25,17 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
+import javax.swing.JLabel;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 import lombok.RequiredArgsConstructor;
 import net.runelite.api.Client;
@@ -50,6 +54,9 @@ import net.runelite.client.util.LinkBrowser;
 
 public class FashionscapePanel extends PluginPanel
 {
+	private static final int DEFAULT_GENERATE_COUNT = 50;
+	private static final int MAX_GENERATE_COUNT = 1000;
+
 	private final Client client;
 	private final ClientThread clientThread;
 	private final SwapManager swapManager;
@@ -57,6 +64,7 @@ public class FashionscapePanel extends PluginPanel
 	private JButton undo;
 	private JButton redo;
 	private JButton shuffle;
+	private JLabel seedLabel;
 	private JButton save;
 	private JButton load;
 	private JButton clear;
@@ -67,6 +75,7 @@ public class FashionscapePanel extends PluginPanel
 
 	private final SearchPanel searchPanel;
 	private final KitsPanel kitsPanel;
+	private final OutfitCoherence outfitCoherence;
 
 	@RequiredArgsConstructor
 	static class SearchClearingPanel extends JPanel
@@ -87,12 +96,14 @@ public class FashionscapePanel extends PluginPanel
 
 	@Inject
 	public FashionscapePanel(SearchPanel searchPanel, KitsPanel kitsPanel, SwapManager swapManager,
-							 ItemManager itemManager, Client client, ClientThread clientThread)
+							 ItemManager itemManager, Client client, ClientThread clientThread,
+							 OutfitCoherence outfitCoherence)
 	{
 		super(false);
 		this.client = client;
 		this.clientThread = clientThread;
 		this.swapManager = swapManager;
+		this.outfitCoherence = outfitCoherence;
 		tabDisplayPanel = new SearchClearingPanel(searchPanel);
 		tabGroup = new MaterialTabGroup(tabDisplayPanel);
 
@@ -113,7 +124,7 @@ public class FashionscapePanel extends PluginPanel
 				searchPanel.clearSearch();
 			}
 		};
-		SwapsPanel swapsPanel = new SwapsPanel(swapManager, itemManager, searchOpener, clientThread);
+		SwapsPanel swapsPanel = new SwapsPanel(swapManager, itemManager, searchOpener, clientThread, outfitCoherence);
 		this.searchPanel = searchPanel;
 		this.kitsPanel = kitsPanel;
 
@@ -193,6 +204,7 @@ public class FashionscapePanel extends PluginPanel
 		{
 			kitsPanel.onPlayerChanged(player);
 		}
+		outfitCoherence.refreshIfGenderChanged();
 	}
 
 	public void reloadResults()
@@ -259,13 +271,18 @@ public class FashionscapePanel extends PluginPanel
 		shuffle = new JButton(new ImageIcon(ImageUtil.loadImageResource(getClass(), "shuffle.png")));
 		shuffle.setSize(12, 12);
 		shuffle.setToolTipText("Randomize");
-		shuffle.addActionListener(e -> clientThread.invokeLater(() -> {
-			swapManager.shuffle();
-			reloadResults();
-		}));
+		shuffle.addActionListener(e -> shuffleWithSeed(null));
 		checkButtonEnabled(shuffle, isLoggedIn, hasUnlocked, hasNonEmpty);
 		shuffle.setFocusPainted(false);
 		shuffle.addMouseListener(createHoverListener(shuffle));
+		JPopupMenu seededShuffleMenu = new JPopupMenu();
+		JMenuItem seededShuffle = new JMenuItem("Randomize with seed...");
+		seededShuffle.addActionListener(e -> openSeedDialog());
+		seededShuffleMenu.add(seededShuffle);
+		JMenuItem generateOutfits = new JMenuItem("Generate outfits...");
+		generateOutfits.addActionListener(e -> openGenerateDialog());
+		seededShuffleMenu.add(generateOutfits);
+		shuffle.setComponentPopupMenu(seededShuffleMenu);
 		buttonContainer.add(shuffle, c);
 		c.gridx++;
 
@@ -314,9 +331,84 @@ public class FashionscapePanel extends PluginPanel
 		checkButtonEnabled(clear, isLoggedIn, hasUnlocked, hasNonEmpty);
 		buttonContainer.add(clear, c);
 
+		c.gridx = 0;
+		c.gridy++;
+		c.gridwidth = 6;
+		seedLabel = new JLabel();
+		seedLabel.setForeground(ColorScheme.LIGHT_GRAY_COLOR);
+		seedLabel.setBorder(new EmptyBorder(3, 0, 0, 0));
+		seedLabel.setToolTipText("Right-click randomize to reuse a seed");
+		updateSeedLabel(swapManager.getLastShuffleSeed());
+		buttonContainer.add(seedLabel, c);
+
 		return buttonContainer;
 	}
 
+	private void shuffleWithSeed(@Nullable Long seed)
+	{
+		clientThread.invokeLater(() -> swapManager.shuffle(seed, usedSeed -> {
+			SwingUtilities.invokeLater(() -> updateSeedLabel(usedSeed));
+			reloadResults();
+		}));
+	}
+
+	private void openSeedDialog()
+	{
+		Long lastSeed = swapManager.getLastShuffleSeed();
+		Object input = JOptionPane.showInputDialog(this,
+			"Same seed, intelligence, and locks give the same outfit:", "Randomize with seed",
+			JOptionPane.PLAIN_MESSAGE, null, null, lastSeed != null ? lastSeed.toString() : "");
+		if (input == null || input.toString().trim().isEmpty())
+		{
+			return;
+		}
+		shuffleWithSeed(parseSeed(input.toString().trim()));
+	}
+
+	private void openGenerateDialog()
+	{
+		Object input = JOptionPane.showInputDialog(this,
+			"Outfits are saved to a new folder in the outfits folder without being applied.\nHow many outfits?",
+			"Generate outfits", JOptionPane.PLAIN_MESSAGE, null, null, String.valueOf(DEFAULT_GENERATE_COUNT));
+		if (input == null)
+		{
+			return;
+		}
+		int count;
+		try
+		{
+			count = Integer.parseInt(input.toString().trim());
+		}
+		catch (NumberFormatException e)
+		{
+			return;
+		}
+		if (count > 0)
+		{
+			int finalCount = Math.min(count, MAX_GENERATE_COUNT);
+			clientThread.invokeLater(() -> swapManager.generateOutfits(finalCount));
+		}
+	}
+
+	// numbers are used as-is, but any text works as a seed
+	private static long parseSeed(String input)
+	{
+		try
+		{
+			return Long.parseLong(input);
+		}
+		catch (NumberFormatException e)
+		{
+			return input.hashCode();
+		}
+	}
+
+	private void updateSeedLabel(@Nullable Long seed)
+	{
+		seedLabel.setText(seed != null ? "Seed: " + seed : "");
+		seedLabel.setVisible(seed != null);
+	}
+
 	@SuppressWarnings("ResultOfMethodCallIgnored")
 	private void openSaveDialog()
 	{
@@ -20,6 +20,7 @@ import java.awt.GridLayout;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -56,8 +57,11 @@ public class KitItemPanel extends DropdownIconPanel
 
 	private final SwapManager swapManager;
 	private final KitColorOpener kitColorOpener;
+	private final SwatchScoreLoader swatchScoreLoader;
 
 	private final Map<Integer, Colorable> colorMap = new HashMap<>();
+	// swatches currently shown in the dropdown, by color id
+	private final Map<Integer, JLabel> colorLabels = new HashMap<>();
 
 	private final JButton lockColorButton = new JButton();
 	private final List<Kit> allKits = new ArrayList<>();
@@ -67,11 +71,13 @@ public class KitItemPanel extends DropdownIconPanel
 	private Integer kitId;
 
 	public KitItemPanel(SwapManager swapManager, ColorType type, Integer colorId, KitType slot, Integer kitId,
-						KitColorOpener kitColorOpener, BufferedImage image, ClientThread clientThread)
+						KitColorOpener kitColorOpener, SwatchScoreLoader swatchScoreLoader, BufferedImage image,
+						ClientThread clientThread)
 	{
 		super(image, clientThread);
 		this.swapManager = swapManager;
 		this.kitColorOpener = kitColorOpener;
+		this.swatchScoreLoader = swatchScoreLoader;
 		this.slot = slot;
 		this.type = type;
 		this.colorId = colorId;
@@ -200,6 +206,7 @@ public class KitItemPanel extends DropdownIconPanel
 	public void openOptions(Integer gender)
 	{
 		optionsContainer.removeAll();
+		colorLabels.clear();
 		if (optionsContainer.isVisible())
 		{
 			optionsContainer.setVisible(false);
@@ -227,6 +234,7 @@ public class KitItemPanel extends DropdownIconPanel
 			for (Colorable colorable : type.getColorables())
 			{
 				JLabel colorLabel = createColorLabel(colorable);
+				colorLabels.put(colorable.getColorId(type), colorLabel);
 
 				JPanel colorWrapper = new JPanel(new BorderLayout());
 				colorWrapper.setBorder(new EmptyBorder(1, 1, 1, 1));
@@ -275,6 +283,30 @@ public class KitItemPanel extends DropdownIconPanel
 		optionsContainer.add(kitsList, BorderLayout.CENTER);
 
 		optionsContainer.updateUI();
+
+		if (type != null)
+		{
+			swatchScoreLoader.loadScores(type, this::showSwatchScores);
+		}
+	}
+
+	// tints swatch borders by how well each color matches the rest of the outfit
+	private void showSwatchScores(Map<Integer, Double> scores)
+	{
+		if (!optionsContainer.isVisible() || scores.values().stream().allMatch(score -> score <= 0))
+		{
+			return;
+		}
+		DecimalFormat format = new DecimalFormat("#.#");
+		colorLabels.forEach((colorId, colorLabel) -> {
+			Double score = scores.get(colorId);
+			Colorable colorable = colorMap.get(colorId);
+			if (score != null && colorable != null)
+			{
+				colorLabel.setBorder(BorderFactory.createLineBorder(SearchItemPanel.getScoreColor(score), 2));
+				colorLabel.setToolTipText(colorable.getDisplayName() + " (" + format.format(score * 100.0) + "% match)");
+			}
+		});
 	}
 
 	private JLabel createColorLabel(Colorable colorable)
@@ -349,6 +381,7 @@ public class KitItemPanel extends DropdownIconPanel
 	public void closeOptions()
 	{
 		optionsContainer.removeAll();
+		colorLabels.clear();
 		optionsContainer.setVisible(false);
 	}
 
@@ -1,8 +1,12 @@
 package eq.uirs.fashionscape.panel;
 
 import eq.uirs.fashionscape.FashionscapeConfig;
+import eq.uirs.fashionscape.colors.ColorScorer;
+import eq.uirs.fashionscape.colors.Palette;
 import eq.uirs.fashionscape.data.ColorType;
+import eq.uirs.fashionscape.data.Colorable;
 import eq.uirs.fashionscape.data.kit.JawIcon;
+import eq.uirs.fashionscape.swap.OutfitState;
 import eq.uirs.fashionscape.swap.SwapManager;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
@@ -11,7 +15,12 @@ import java.awt.GridBagLayout;
 import java.awt.GridLayout;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.swing.JPanel;
@@ -40,13 +49,15 @@ public class KitsPanel extends JPanel
 	private final ItemManager itemManager;
 	private final Client client;
 	private final FashionscapeConfig config;
+	private final ColorScorer colorScorer;
+	private final ScheduledExecutorService executor;
 
 	private final JPanel resultsPanel = new JPanel();
 	private final JScrollPane scrollPane = new JScrollPane();
 	private final List<KitItemPanel> kitPanels = new ArrayList<>();
 	private JawIconPanel jawIconPanel = null;
 
-	private Integer gender;
+	private volatile Integer gender;
 	private final KitColorOpener kitColorOpener = (slot, type) -> {
 		kitPanels.forEach(panel -> {
 			if (slot == panel.getSlot() && type == panel.getType())
@@ -77,6 +88,41 @@ public class KitsPanel extends JPanel
 		scrollPane.revalidate();
 	};
 
+	// most recent swatch scores per color type, reused while the scored outfit and gender are unchanged
+	private final Map<ColorType, SwatchScores> swatchScoreCache = new ConcurrentHashMap<>();
+	private final SwatchScoreLoader swatchScoreLoader = (type, callback) -> {
+		OutfitState state = swapManager.scoredState(type);
+		Integer gender = this.gender;
+		SwatchScores cached = swatchScoreCache.get(type);
+		if (cached != null && cached.state.equals(state) && Objects.equals(cached.gender, gender))
+		{
+			callback.accept(cached.scores);
+			return;
+		}
+		executor.submit(() -> {
+			Palette palette = colorScorer.createPlayerPalette();
+			Map<Integer, Double> scores = new HashMap<>();
+			for (Colorable colorable : type.getColorables())
+			{
+				scores.put(colorable.getColorId(type), colorScorer.score(palette, colorable, type));
+			}
+			// the palette might have been filled from a later outfit than the key, in which case it's not cached
+			if (swapManager.scoredState(type).equals(state))
+			{
+				swatchScoreCache.put(type, new SwatchScores(state, gender, scores));
+			}
+			SwingUtilities.invokeLater(() -> callback.accept(scores));
+		});
+	};
+
+	@Value
+	private static class SwatchScores
+	{
+		OutfitState state;
+		Integer gender;
+		Map<Integer, Double> scores;
+	}
+
 	@Value
 	private static class KitColorResult
 	{
@@ -89,13 +135,15 @@ public class KitsPanel extends JPanel
 
 	@Inject
 	public KitsPanel(SwapManager swapManager, ClientThread clientThread, Client client, FashionscapeConfig config,
-					 ItemManager itemManager)
+					 ItemManager itemManager, ColorScorer colorScorer, ScheduledExecutorService executor)
 	{
 		this.swapManager = swapManager;
 		this.clientThread = clientThread;
 		this.client = client;
 		this.config = config;
 		this.itemManager = itemManager;
+		this.colorScorer = colorScorer;
+		this.executor = executor;
 
 		setLayout(new GridLayout(1, 1));
 		setBackground(ColorScheme.DARK_GRAY_COLOR);
@@ -195,7 +243,7 @@ public class KitsPanel extends JPanel
 					image = ImageUtil.loadImageResource(getClass(), result.slot.name().toLowerCase() + ".png");
 				}
 				KitItemPanel kitPanel = new KitItemPanel(swapManager, result.colorType, result.colorId, result.slot,
-					result.id, kitColorOpener, image, clientThread);
+					result.id, kitColorOpener, swatchScoreLoader, image, clientThread);
 				kitPanels.add(kitPanel);
 				panel = kitPanel;
 			}
@@ -221,6 +269,7 @@ public class KitsPanel extends JPanel
 				if (this.gender == null || this.gender != gender)
 				{
 					this.gender = gender;
+					colorScorer.setGender(gender);
 					populateKitSlots();
 				}
 			}
@@ -144,7 +144,8 @@ class SearchItemPanel extends AbsItemPanel
 		}
 	}
 
-	private Color getScoreColor(Double score)
+	// red (bad match) to green (good match)
+	static Color getScoreColor(double score)
 	{
 		int red = (int) (255.0 * (1 - Math.pow(score, 2)));
 		int green = (int) (255.0 * Math.pow(score, 2));
@@ -4,8 +4,14 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import eq.uirs.fashionscape.FashionscapeConfig;
 import eq.uirs.fashionscape.FashionscapePlugin;
+import eq.uirs.fashionscape.colors.ColorHarmony;
 import eq.uirs.fashionscape.colors.ColorScorer;
+import eq.uirs.fashionscape.colors.ScoreBreakdown;
+import eq.uirs.fashionscape.data.ColorType;
 import eq.uirs.fashionscape.swap.SwapManager;
+import eq.uirs.fashionscape.swap.event.ColorChangedListener;
+import eq.uirs.fashionscape.swap.event.IconChangedListener;
+import eq.uirs.fashionscape.swap.event.ItemChangedListener;
 import eq.uirs.fashionscape.swap.event.LockChanged;
 import eq.uirs.fashionscape.swap.event.LockChangedListener;
 import java.awt.BorderLayout;
@@ -22,6 +28,7 @@ import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,6 +36,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -115,12 +123,17 @@ class SearchPanel extends JPanel
 	};
 
 	private Future<?> searchFuture = null;
+	private Future<?> rescoreFuture = null;
 	private Function<ItemComposition, Boolean> filter;
 	private boolean allowShortQueries = false;
 	private SortBy sort;
 	private KitType selectedSlot = null;
 	private boolean hasSearched = false;
 	private final Map<Integer, Double> scores = new HashMap<>();
+	// per-slot partial color scores of current results, so that a single outfit change doesn't rescore everything
+	private final Map<Integer, ScoreBreakdown> breakdowns = new HashMap<>();
+	private final Set<KitType> changedSlots = ConcurrentHashMap.newKeySet();
+	private final Set<ColorType> changedColors = ConcurrentHashMap.newKeySet();
 
 	private final Comparator<Result> itemAlphaComparator = Comparator.comparing(Result::getName);
 
@@ -234,6 +247,9 @@ class SearchPanel extends JPanel
 				updateTabIcon(e);
 			}
 		}));
+		swapManager.addEventListener(new ItemChangedListener((e) -> onOutfitChanged(e.getSlot(), null)));
+		swapManager.addEventListener(new IconChangedListener((e) -> onOutfitChanged(KitType.JAW, null)));
+		swapManager.addEventListener(new ColorChangedListener((e) -> onOutfitChanged(null, e.getType())));
 	}
 
 	private JComboBox<SortBy> createSortBox(FashionscapeConfig config)
@@ -287,6 +303,7 @@ class SearchPanel extends JPanel
 			searchBar.setText("");
 		}
 		results.clear();
+		breakdowns.clear();
 		searchPanels.clear();
 		SwingUtilities.invokeLater(() -> {
 			SwingUtil.fastRemoveAll(resultsPanel);
@@ -443,7 +460,7 @@ class SearchPanel extends JPanel
 			}
 
 			Set<Integer> ids = new HashSet<>();
-			Set<Integer> skips = FashionscapePlugin.getItemIdsToExclude(config);
+			BitSet skips = FashionscapePlugin.getItemIdsToExclude(config);
 			for (int i = 0; i < client.getItemCount(); i++)
 			{
 				ItemComposition itemComposition = null;
@@ -451,7 +468,7 @@ class SearchPanel extends JPanel
 				try
 				{
 					int canonical = itemManager.canonicalize(i);
-					if (skips.contains(canonical))
+					if (skips.get(canonical))
 					{
 						continue;
 					}
@@ -486,6 +503,7 @@ class SearchPanel extends JPanel
 
 			searchPanels.clear();
 			scores.clear();
+			breakdowns.clear();
 			switch (this.sort)
 			{
 				case RELEASE:
@@ -503,6 +521,16 @@ class SearchPanel extends JPanel
 						addPendingResults(postExec);
 					});
 					break;
+				case COMPLEMENTARY:
+				case ANALOGOUS:
+				case TRIADIC:
+				case MONOCHROME:
+					ColorHarmony harmony = this.sort.getHarmony();
+					executor.submit(() -> {
+						performHarmonySort(harmony);
+						addPendingResults(postExec);
+					});
+					break;
 			}
 		}
 		return willUpdate;
@@ -514,13 +542,105 @@ class SearchPanel extends JPanel
 		for (Result result : results)
 		{
 			int itemId = result.getId();
-			scores.put(itemId, colorScorer.score(itemId, selectedSlot));
+			ScoreBreakdown breakdown = colorScorer.breakdown(itemId, selectedSlot);
+			breakdowns.put(itemId, breakdown);
+			scores.put(itemId, breakdown.getScore());
 		}
+		sortByScore();
+	}
+
+	private void performHarmonySort(ColorHarmony harmony)
+	{
+		colorScorer.updatePlayerInfo();
+		for (Result result : results)
+		{
+			int itemId = result.getId();
+			scores.put(itemId, colorScorer.score(itemId, selectedSlot, harmony));
+		}
+		sortByScore();
+	}
+
+	private void sortByScore()
+	{
 		results.sort(Comparator.comparing(r ->
 			-scores.getOrDefault(r.getId(), 0.0)));
 	}
 
-	// only to be called from updateSearch
+	private void onOutfitChanged(@Nullable KitType slot, @Nullable ColorType type)
+	{
+		if (sort.getHarmony() == null || (slot != null && slot == selectedSlot))
+		{
+			// scores don't depend on this change
+			return;
+		}
+		if (slot != null)
+		{
+			changedSlots.add(slot);
+		}
+		if (type != null)
+		{
+			changedColors.add(type);
+		}
+		rescoreDebounced();
+	}
+
+	private void rescoreDebounced()
+	{
+		Future<?> future = rescoreFuture;
+		if (future != null)
+		{
+			future.cancel(false);
+		}
+		rescoreFuture = executor.schedule(this::rescoreChanged, DEBOUNCE_DELAY_MS, TimeUnit.MILLISECONDS);
+	}
+
+	// only updates the parts of existing scores that depend on changed slots/colors, then re-sorts
+	private void rescoreChanged()
+	{
+		if (!searchInProgress.compareAndSet(false, true))
+		{
+			// search was in progress; try again later
+			rescoreDebounced();
+			return;
+		}
+		List<KitType> slots = new ArrayList<>(changedSlots);
+		changedSlots.removeAll(slots);
+		List<ColorType> types = new ArrayList<>(changedColors);
+		changedColors.removeAll(types);
+		ColorHarmony harmony = sort.getHarmony();
+		if (harmony == null || results.isEmpty())
+		{
+			searchInProgress.set(false);
+			return;
+		}
+		if (harmony.isHueBased())
+		{
+			// dominant hues depend on the whole outfit, but hue scoring is cheap enough to redo in full
+			performHarmonySort(harmony);
+		}
+		else
+		{
+			colorScorer.updatePlayerInfo();
+			for (ScoreBreakdown breakdown : breakdowns.values())
+			{
+				for (KitType slot : slots)
+				{
+					colorScorer.rescore(breakdown, slot);
+				}
+				for (ColorType type : types)
+				{
+					colorScorer.rescore(breakdown, type);
+				}
+			}
+			breakdowns.forEach((itemId, breakdown) -> scores.put(itemId, breakdown.getScore()));
+			sortByScore();
+		}
+		addPendingResults(() -> {
+			// no-op
+		});
+	}
+
+	// only to be called from updateSearch or rescoreChanged
 	private void addPendingResults(Runnable postExec)
 	{
 		SwingUtilities.invokeLater(() -> {
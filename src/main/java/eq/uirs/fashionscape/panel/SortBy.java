@@ -1,11 +1,39 @@
 package eq.uirs.fashionscape.panel;
 
+import eq.uirs.fashionscape.colors.ColorHarmony;
+import javax.annotation.Nullable;
+
 public enum SortBy
 {
 	COLOR_MATCH,
+	COMPLEMENTARY,
+	ANALOGOUS,
+	TRIADIC,
+	MONOCHROME,
 	ALPHABETICAL,
 	RELEASE;
 
+	// how results are color scored, or null if this sort doesn't use scores
+	@Nullable
+	public ColorHarmony getHarmony()
+	{
+		switch (this)
+		{
+			case COLOR_MATCH:
+				return ColorHarmony.SIMILAR;
+			case COMPLEMENTARY:
+				return ColorHarmony.COMPLEMENTARY;
+			case ANALOGOUS:
+				return ColorHarmony.ANALOGOUS;
+			case TRIADIC:
+				return ColorHarmony.TRIADIC;
+			case MONOCHROME:
+				return ColorHarmony.MONOCHROME;
+			default:
+				return null;
+		}
+	}
+
 	@Override
 	public String toString()
 	{
@@ -17,6 +45,14 @@ public enum SortBy
 				return "Alphabetical";
 			case COLOR_MATCH:
 				return "Colour match";
+			case COMPLEMENTARY:
+				return "Complementary colours";
+			case ANALOGOUS:
+				return "Analogous colours";
+			case TRIADIC:
+				return "Triadic colours";
+			case MONOCHROME:
+				return "Monochrome";
 			default:
 				return "";
 		}
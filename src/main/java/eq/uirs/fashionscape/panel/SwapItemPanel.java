@@ -11,10 +11,14 @@ import java.awt.GridLayout;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
+import java.util.Set;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JMenuItem;
 import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
 import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 import lombok.extern.slf4j.Slf4j;
@@ -92,6 +96,25 @@ class SwapItemPanel extends AbsItemPanel
 		updateLockButton();
 		updateXButton();
 
+		JPopupMenu shuffleMenu = new JPopupMenu();
+		JMenuItem shuffleSlot = new JMenuItem("Randomize " + slot.name().toLowerCase());
+		shuffleSlot.addActionListener(e -> clientThread.invokeLater(() -> swapManager.shuffleSlots(slot, false)));
+		shuffleMenu.add(shuffleSlot);
+		Set<KitType> group = swapManager.groupSlots(slot);
+		if (group.size() > 1)
+		{
+			String groupName = group.stream()
+				.sorted()
+				.map(s -> s.name().toLowerCase())
+				.collect(Collectors.joining(" + "));
+			JMenuItem shuffleGroup = new JMenuItem("Randomize " + groupName);
+			shuffleGroup.addActionListener(e -> clientThread.invokeLater(() -> swapManager.shuffleSlots(slot, true)));
+			shuffleMenu.add(shuffleGroup);
+		}
+		setComponentPopupMenu(shuffleMenu);
+		rightPanel.setInheritsPopupMenu(true);
+		label.setInheritsPopupMenu(true);
+
 		rightPanel.add(buttons, BorderLayout.EAST);
 
 		add(rightPanel, BorderLayout.CENTER);
@@ -1,13 +1,16 @@
 package eq.uirs.fashionscape.panel;
 
+import eq.uirs.fashionscape.colors.OutfitCoherence;
 import eq.uirs.fashionscape.swap.SwapManager;
 import eq.uirs.fashionscape.swap.event.KnownKitChangedListener;
 import java.awt.BorderLayout;
+import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.image.BufferedImage;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -38,10 +41,12 @@ class SwapsPanel extends JPanel
 	private final ItemManager itemManager;
 	private final ClientThread clientThread;
 	private final SearchOpener searchOpener;
+	private final OutfitCoherence outfitCoherence;
 
 	private final Set<KitType> unknownSlots = new HashSet<>();
 
 	private JPanel slotsPanel;
+	private JPanel coherencePanel;
 	private JPanel warningsPanel;
 
 	@Value
@@ -53,12 +58,13 @@ class SwapsPanel extends JPanel
 	}
 
 	public SwapsPanel(SwapManager swapManager, ItemManager itemManager, SearchOpener searchOpener,
-					  ClientThread clientThread)
+					  ClientThread clientThread, OutfitCoherence outfitCoherence)
 	{
 		this.swapManager = swapManager;
 		this.itemManager = itemManager;
 		this.searchOpener = searchOpener;
 		this.clientThread = clientThread;
+		this.outfitCoherence = outfitCoherence;
 
 		setLayout(new BorderLayout());
 		setBackground(ColorScheme.DARK_GRAY_COLOR);
@@ -89,6 +95,7 @@ class SwapsPanel extends JPanel
 			}
 			SwingUtilities.invokeLater(this::refreshWarnings);
 		}));
+		outfitCoherence.addListener(report -> SwingUtilities.invokeLater(() -> refreshCoherence(report)));
 	}
 
 	private JPanel setUpContentPanel()
@@ -112,6 +119,17 @@ class SwapsPanel extends JPanel
 		contentContainer.add(slotsPanel, c);
 		c.gridy++;
 
+		coherencePanel = new JPanel();
+		coherencePanel.setLayout(new GridBagLayout());
+		coherencePanel.setBorder(new EmptyBorder(10, 5, 0, 5));
+		coherencePanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
+		clientThread.invokeLater(() -> {
+			OutfitCoherence.Report report = outfitCoherence.getReport();
+			SwingUtilities.invokeLater(() -> refreshCoherence(report));
+		});
+		contentContainer.add(coherencePanel, c);
+		c.gridy++;
+
 		warningsPanel = new JPanel();
 		warningsPanel.setLayout(new GridBagLayout());
 		warningsPanel.setBorder(new EmptyBorder(5, 5, 5, 5));
@@ -173,6 +191,44 @@ class SwapsPanel extends JPanel
 		}
 	}
 
+	// shows how well each slot's colors match the rest of the outfit, worst first
+	private void refreshCoherence(OutfitCoherence.Report report)
+	{
+		coherencePanel.removeAll();
+
+		if (!report.getScores().isEmpty())
+		{
+			GridBagConstraints c = new GridBagConstraints();
+			c.fill = GridBagConstraints.HORIZONTAL;
+			c.anchor = GridBagConstraints.PAGE_START;
+			c.weightx = 1;
+			c.weighty = 0;
+			c.gridx = 0;
+			c.gridy = 0;
+
+			DecimalFormat format = new DecimalFormat("#.#");
+			JLabel overallLabel = new JLabel("Colour coherence: " + format.format(report.getOverall() * 100.0) + "%");
+			overallLabel.setForeground(Color.WHITE);
+			overallLabel.setToolTipText("How well the colours of your outfit match each other");
+			coherencePanel.add(overallLabel, c);
+			c.gridy++;
+
+			for (OutfitCoherence.SourceScore score : report.getScores())
+			{
+				String name = score.getSlot() != null ?
+					Text.titleCase(score.getSlot()) :
+					Text.titleCase(score.getType()) + " colour";
+				JLabel scoreLabel = new JLabel(name + ": " + format.format(score.getScore() * 100.0) + "%");
+				scoreLabel.setForeground(SearchItemPanel.getScoreColor(score.getScore()));
+				scoreLabel.setBorder(new EmptyBorder(2, 5, 0, 0));
+				coherencePanel.add(scoreLabel, c);
+				c.gridy++;
+			}
+		}
+		revalidate();
+		repaint();
+	}
+
 	public void refreshWarnings()
 	{
 		warningsPanel.removeAll();
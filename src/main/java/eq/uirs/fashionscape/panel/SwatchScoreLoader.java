@@ -0,0 +1,13 @@
+package eq.uirs.fashionscape.panel;
+
+import eq.uirs.fashionscape.data.ColorType;
+import java.util.Map;
+import java.util.function.Consumer;
+
+interface SwatchScoreLoader
+{
+	/**
+	 * loads color match scores (by color id) for every swatch of the given type, calling back on the EDT
+	 */
+	void loadScores(ColorType type, Consumer<Map<Integer, Double>> callback);
+}
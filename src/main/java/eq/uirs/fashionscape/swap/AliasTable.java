@@ -0,0 +1,76 @@
+package eq.uirs.fashionscape.swap;
+
+import java.util.Random;
+
+/**
+ * Samples indices in proportion to fixed weights in constant time (Vose's alias method).
+ */
+class AliasTable
+{
+	// chance of keeping the column's own index rather than its alias
+	private final double[] keep;
+	private final int[] alias;
+
+	/**
+	 * weights must not be negative, and at least one must be positive
+	 */
+	AliasTable(double[] weights)
+	{
+		int n = weights.length;
+		keep = new double[n];
+		alias = new int[n];
+		double total = 0;
+		for (double w : weights)
+		{
+			total += w;
+		}
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smallCount = 0;
+		int largeCount = 0;
+		for (int i = 0; i < n; i++)
+		{
+			scaled[i] = weights[i] * n / total;
+			if (scaled[i] < 1)
+			{
+				small[smallCount++] = i;
+			}
+			else
+			{
+				large[largeCount++] = i;
+			}
+		}
+		while (smallCount > 0 && largeCount > 0)
+		{
+			int s = small[--smallCount];
+			int l = large[--largeCount];
+			keep[s] = scaled[s];
+			alias[s] = l;
+			scaled[l] = scaled[l] + scaled[s] - 1;
+			if (scaled[l] < 1)
+			{
+				small[smallCount++] = l;
+			}
+			else
+			{
+				large[largeCount++] = l;
+			}
+		}
+		// anything left over is (up to rounding error) exactly 1
+		while (largeCount > 0)
+		{
+			keep[large[--largeCount]] = 1;
+		}
+		while (smallCount > 0)
+		{
+			keep[small[--smallCount]] = 1;
+		}
+	}
+
+	int sample(Random r)
+	{
+		int i = r.nextInt(keep.length);
+		return r.nextDouble() < keep[i] ? i : alias[i];
+	}
+}
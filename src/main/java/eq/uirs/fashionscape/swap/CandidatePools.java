@@ -0,0 +1,113 @@
+package eq.uirs.fashionscape.swap;
+
+import eq.uirs.fashionscape.FashionscapeConfig;
+import eq.uirs.fashionscape.FashionscapePlugin;
+import java.util.Arrays;
+import java.util.BitSet;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.kit.KitType;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.game.ItemStats;
+
+/**
+ * Per-slot arrays of every item id the randomizer may pick, respecting exclusion settings.
+ * Built once (on the client thread) and reused until exclusions or the item catalog change.
+ */
+@Slf4j
+@Singleton
+class CandidatePools
+{
+	private static final KitType[] SLOTS = KitType.values();
+
+	private final Client client;
+	private final ItemManager itemManager;
+	private final FashionscapeConfig config;
+
+	// indexed by KitType ordinal, null until built
+	private volatile int[][] pools;
+
+	@Inject
+	CandidatePools(Client client, ItemManager itemManager, FashionscapeConfig config)
+	{
+		this.client = client;
+		this.itemManager = itemManager;
+		this.config = config;
+	}
+
+	/**
+	 * returns all pools, indexed by KitType ordinal. Do not modify the arrays.
+	 * Must be called from the client thread, since the pools may need to be built first.
+	 */
+	int[][] getPools()
+	{
+		int[][] pools = this.pools;
+		if (pools == null)
+		{
+			pools = build();
+			this.pools = pools;
+		}
+		return pools;
+	}
+
+	void invalidate()
+	{
+		pools = null;
+	}
+
+	private int[][] build()
+	{
+		int[][] result = new int[SLOTS.length][16];
+		int[] sizes = new int[SLOTS.length];
+		BitSet seen = new BitSet(client.getItemCount());
+		BitSet skips = FashionscapePlugin.getItemIdsToExclude(config);
+		for (int i = 0; i < client.getItemCount(); i++)
+		{
+			int canonical = itemManager.canonicalize(i);
+			if (seen.get(canonical) || skips.get(canonical))
+			{
+				continue;
+			}
+			seen.set(canonical);
+			ItemComposition itemComposition = itemManager.getItemComposition(canonical);
+			int itemId = itemComposition.getId();
+			ItemStats stats = itemManager.getItemStats(itemId);
+			if (stats == null || !stats.isEquipable())
+			{
+				continue;
+			}
+			KitType slot = slotForIndex(stats.getEquipment().getSlot());
+			if (slot == null)
+			{
+				continue;
+			}
+			int ordinal = slot.ordinal();
+			if (sizes[ordinal] == result[ordinal].length)
+			{
+				result[ordinal] = Arrays.copyOf(result[ordinal], sizes[ordinal] * 2);
+			}
+			result[ordinal][sizes[ordinal]++] = itemId;
+		}
+		for (int i = 0; i < SLOTS.length; i++)
+		{
+			result[i] = Arrays.copyOf(result[i], sizes[i]);
+		}
+		log.debug("built randomizer candidate pools: {}", Arrays.toString(sizes));
+		return result;
+	}
+
+	private static KitType slotForIndex(int index)
+	{
+		for (KitType slot : SLOTS)
+		{
+			if (slot.getIndex() == index)
+			{
+				return slot;
+			}
+		}
+		return null;
+	}
+}
@@ -2,9 +2,12 @@ package eq.uirs.fashionscape.swap;
 
 import eq.uirs.fashionscape.data.kit.JawIcon;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import lombok.Getter;
@@ -88,6 +91,21 @@ class CompoundSwap
 		}
 	}
 
+	/**
+	 * all slots that are swapped together with the given slot (just the slot itself if it isn't grouped)
+	 */
+	static Set<KitType> groupSlots(KitType slot)
+	{
+		Type type = Type.fromSlot(slot);
+		if (type == Type.SINGLE)
+		{
+			return Collections.singleton(slot);
+		}
+		return Arrays.stream(KitType.values())
+			.filter(s -> Type.fromSlot(s) == type)
+			.collect(Collectors.toSet());
+	}
+
 	static CompoundSwap single(KitType slot, Integer equipmentId)
 	{
 		switch (slot)
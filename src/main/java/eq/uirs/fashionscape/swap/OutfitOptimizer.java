@@ -0,0 +1,267 @@
+package eq.uirs.fashionscape.swap;
+
+import eq.uirs.fashionscape.colors.ColorScorer;
+import eq.uirs.fashionscape.colors.OutfitScore;
+import eq.uirs.fashionscape.data.ColorType;
+import eq.uirs.fashionscape.data.Colorable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import lombok.Value;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Picks items and colors for all open slots together (rather than one slot at a time) by simulated annealing on the
+ * outfit's overall colour coherence. A few independent chains run in parallel and the best result wins.
+ */
+class OutfitOptimizer
+{
+	private static final KitType[] SLOTS = KitType.values();
+	private static final ColorType[] COLOR_TYPES = ColorType.values();
+
+	// independent chains per outfit. fixed (rather than based on core count), since results depend on it
+	private static final int CHAINS = 4;
+	// moves per chain, which also drives the cooling schedule. time limited runs may stop before reaching it
+	private static final int MAX_ITERATIONS = 4000;
+	// how often the deadline is checked in time limited runs
+	private static final int DEADLINE_CHECK_INTERVAL = 64;
+	// annealing temperatures, relative to scores between 0 and 1
+	private static final double START_TEMPERATURE = 0.05;
+	private static final double END_TEMPERATURE = 0.0005;
+	// offset of the chains' random streams within a seeded shuffle
+	private static final int SEED_STREAM_CHAINS = 64;
+	private static final int MAX_DRAWS = 10;
+
+	private final ColorScorer colorScorer;
+	private final SlotRules slotRules;
+	private final ShufflePlanner planner;
+
+	@Value
+	static class Result
+	{
+		double score;
+		// false if the time budget ran out first, in which case the result depends on timing rather than just the seed
+		boolean complete;
+		// slot -> item id, open slots only
+		Map<KitType, Integer> items;
+		// color type -> colorable, open color types only
+		Map<ColorType, Colorable> colors;
+	}
+
+	OutfitOptimizer(ColorScorer colorScorer, SlotRules slotRules, ShufflePlanner planner)
+	{
+		this.colorScorer = colorScorer;
+		this.slotRules = slotRules;
+		this.planner = planner;
+	}
+
+	/**
+	 * if `timeLimited`, chains stop early once the time budget is used up. otherwise every chain makes all of its
+	 * moves, so that the same seed always gives the same result
+	 */
+	Result optimize(ShuffleContext context, long seed, boolean timeLimited)
+	{
+		long deadline = System.nanoTime() + context.getTimeBudgetMs() * 1_000_000L;
+		List<ForkJoinTask<Result>> tasks = new ArrayList<>(CHAINS);
+		for (int i = 0; i < CHAINS; i++)
+		{
+			Random r = ShufflePlanner.seededRandom(seed, SEED_STREAM_CHAINS + i);
+			tasks.add(ForkJoinPool.commonPool().submit(() -> new Chain(context, r).run(timeLimited, deadline)));
+		}
+		Result best = null;
+		boolean complete = true;
+		for (ForkJoinTask<Result> task : tasks)
+		{
+			// ties go to the lowest chain so that the result doesn't depend on scheduling
+			Result result = task.join();
+			complete &= result.complete;
+			if (best == null || result.score > best.score)
+			{
+				best = result;
+			}
+		}
+		return new Result(best.score, complete, best.items, best.colors);
+	}
+
+	/**
+	 * a single annealing run. the current outfit lives in arrays indexed by slot/color type ordinal
+	 */
+	private class Chain
+	{
+		private final ShuffleContext context;
+		private final Random r;
+		private final OutfitScore outfitScore;
+		// -1 if nothing is in the slot
+		private final int[] items = new int[SLOTS.length];
+		private final Colorable[] colors = new Colorable[COLOR_TYPES.length];
+		// open slots with something to pick from, then open color types (offset by the slot count)
+		private final List<Integer> variables = new ArrayList<>();
+
+		Chain(ShuffleContext context, Random r)
+		{
+			this.context = context;
+			this.r = r;
+			this.outfitScore = colorScorer.createOutfitScore(context.getLockedItems(), context.getLockedColors(),
+				context.getHarmony());
+		}
+
+		Result run(boolean timeLimited, long deadline)
+		{
+			randomStart();
+			double score = outfitScore.getScore();
+			double bestScore = score;
+			int[] bestItems = items.clone();
+			Colorable[] bestColors = colors.clone();
+			boolean complete = true;
+			for (int i = 0; i < MAX_ITERATIONS && !variables.isEmpty(); i++)
+			{
+				if (timeLimited && i % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline)
+				{
+					complete = false;
+					break;
+				}
+				double temperature = START_TEMPERATURE *
+					Math.pow(END_TEMPERATURE / START_TEMPERATURE, (double) i / MAX_ITERATIONS);
+				int variable = variables.get(r.nextInt(variables.size()));
+				Runnable undo = variable < SLOTS.length ?
+					moveItem(SLOTS[variable]) :
+					moveColor(COLOR_TYPES[variable - SLOTS.length]);
+				if (undo == null)
+				{
+					continue;
+				}
+				double newScore = outfitScore.getScore();
+				double delta = newScore - score;
+				if (delta >= 0 || r.nextDouble() < Math.exp(delta / temperature))
+				{
+					score = newScore;
+					if (score > bestScore)
+					{
+						bestScore = score;
+						System.arraycopy(items, 0, bestItems, 0, items.length);
+						System.arraycopy(colors, 0, bestColors, 0, colors.length);
+					}
+				}
+				else
+				{
+					undo.run();
+				}
+			}
+			Map<KitType, Integer> resultItems = new HashMap<>();
+			for (KitType slot : SLOTS)
+			{
+				if (!context.getLockedSlots().contains(slot) && bestItems[slot.ordinal()] >= 0)
+				{
+					resultItems.put(slot, bestItems[slot.ordinal()]);
+				}
+			}
+			Map<ColorType, Colorable> resultColors = new HashMap<>();
+			for (ColorType type : COLOR_TYPES)
+			{
+				if (!context.getLockedColorTypes().contains(type) && bestColors[type.ordinal()] != null)
+				{
+					resultColors.put(type, bestColors[type.ordinal()]);
+				}
+			}
+			return new Result(bestScore, complete, resultItems, resultColors);
+		}
+
+		// fills every open slot/color with a random valid pick, in random order
+		private void randomStart()
+		{
+			Arrays.fill(items, -1);
+			List<KitType> openSlots = new ArrayList<>();
+			for (KitType slot : SLOTS)
+			{
+				if (!context.getLockedSlots().contains(slot) && context.getPools()[slot.ordinal()].length > 0)
+				{
+					openSlots.add(slot);
+					variables.add(slot.ordinal());
+				}
+			}
+			Collections.shuffle(openSlots, r);
+			for (KitType slot : openSlots)
+			{
+				moveItem(slot);
+			}
+			for (ColorType type : COLOR_TYPES)
+			{
+				if (!context.getLockedColorTypes().contains(type) && type.getColorables().length > 0)
+				{
+					variables.add(SLOTS.length + type.ordinal());
+					moveColor(type);
+				}
+			}
+		}
+
+		/**
+		 * puts a random valid item into the slot
+		 *
+		 * @return how to revert the change, or null if nothing valid was found
+		 */
+		private Runnable moveItem(KitType slot)
+		{
+			int[] pool = context.getPools()[slot.ordinal()];
+			int weapon = items[KitType.WEAPON.ordinal()];
+			int shield = items[KitType.SHIELD.ordinal()];
+			boolean shieldLocked = context.getLockedSlots().contains(KitType.SHIELD);
+			// Don't equip a shield if we already have a 2h weapon
+			if (slot == KitType.SHIELD && weapon >= 0 && slotRules.isTwoHanded(weapon))
+			{
+				return null;
+			}
+			for (int draws = 0; draws < MAX_DRAWS; draws++)
+			{
+				int itemId = pool[r.nextInt(pool.length)];
+				// an unlocked shield is removed when moving to a 2h weapon, rather than ruling 2h weapons out
+				if (itemId == items[slot.ordinal()] || !planner.isCandidate(context, slot, itemId, shieldLocked))
+				{
+					continue;
+				}
+				int previous = items[slot.ordinal()];
+				setItem(slot, itemId);
+				if (slot == KitType.WEAPON && shield >= 0 && !shieldLocked && slotRules.isTwoHanded(itemId))
+				{
+					setItem(KitType.SHIELD, -1);
+					return () -> {
+						setItem(KitType.WEAPON, previous);
+						setItem(KitType.SHIELD, shield);
+					};
+				}
+				return () -> setItem(slot, previous);
+			}
+			return null;
+		}
+
+		private Runnable moveColor(ColorType type)
+		{
+			Colorable[] colorables = type.getColorables();
+			Colorable colorable = colorables[r.nextInt(colorables.length)];
+			Colorable previous = colors[type.ordinal()];
+			if (colorable == previous)
+			{
+				return null;
+			}
+			setColor(type, colorable);
+			return () -> setColor(type, previous);
+		}
+
+		private void setItem(KitType slot, int itemId)
+		{
+			items[slot.ordinal()] = itemId;
+			outfitScore.putItem(slot, itemId >= 0 ? itemId : null);
+		}
+
+		private void setColor(ColorType type, Colorable colorable)
+		{
+			colors[type.ordinal()] = colorable;
+			outfitScore.putColor(type, colorable);
+		}
+	}
+}
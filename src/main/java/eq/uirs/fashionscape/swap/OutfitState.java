@@ -0,0 +1,373 @@
+package eq.uirs.fashionscape.swap;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import eq.uirs.fashionscape.data.ColorType;
+import eq.uirs.fashionscape.data.kit.JawIcon;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import lombok.Getter;
+import net.runelite.api.kit.KitType;
+
+/**
+ * An immutable snapshot of the user's swaps and locks. Ids are held in small arrays indexed by slot/color type
+ * ordinal (-1 where nothing is swapped) and flags in bitmasks. Changes return a new state that shares every array
+ * they didn't touch, or the same state if nothing changed, so snapshots are just references and an unchanged outfit
+ * can be recognized by identity. The hash is computed once per state.
+ */
+public final class OutfitState
+{
+	private static final KitType[] SLOTS = KitType.values();
+	private static final ColorType[] COLOR_TYPES = ColorType.values();
+	private static final int NONE = -1;
+
+	static final OutfitState EMPTY = new OutfitState(none(SLOTS.length), none(SLOTS.length), 0,
+		none(COLOR_TYPES.length), null, 0, 0, 0, false);
+
+	private final int[] itemIds;
+	private final int[] kitIds;
+	// slots that show nothing. a hidden slot never also has an item
+	private final int hiddenMask;
+	private final int[] colorIds;
+	@Getter
+	@Nullable
+	private final JawIcon icon;
+	private final int lockedKitMask;
+	private final int lockedItemMask;
+	private final int lockedColorMask;
+	@Getter
+	private final boolean iconLocked;
+	private final long hash;
+
+	private OutfitState(int[] itemIds, int[] kitIds, int hiddenMask, int[] colorIds, @Nullable JawIcon icon,
+		int lockedKitMask, int lockedItemMask, int lockedColorMask, boolean iconLocked)
+	{
+		this.itemIds = itemIds;
+		this.kitIds = kitIds;
+		this.hiddenMask = hiddenMask;
+		this.colorIds = colorIds;
+		this.icon = icon;
+		this.lockedKitMask = lockedKitMask;
+		this.lockedItemMask = lockedItemMask;
+		this.lockedColorMask = lockedColorMask;
+		this.iconLocked = iconLocked;
+		long h = 0;
+		for (int itemId : itemIds)
+		{
+			h = mix(h, itemId);
+		}
+		h = mix(h, icon != null ? icon.getId() : NONE);
+		for (int kitId : kitIds)
+		{
+			h = mix(h, kitId);
+		}
+		for (int colorId : colorIds)
+		{
+			h = mix(h, colorId);
+		}
+		h = mix(h, hiddenMask);
+		h = mix(h, lockedKitMask);
+		h = mix(h, lockedItemMask);
+		h = mix(h, lockedColorMask);
+		this.hash = finish(mix(h, iconLocked ? 1 : 0));
+	}
+
+	private static int[] none(int length)
+	{
+		int[] result = new int[length];
+		Arrays.fill(result, NONE);
+		return result;
+	}
+
+	private static long mix(long h, int value)
+	{
+		return (h + value) * 0x9E3779B97F4A7C15L;
+	}
+
+	// murmur3's 64-bit finalizer, so that every bit of the hash depends on every input
+	private static long finish(long h)
+	{
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		return h ^ (h >>> 33);
+	}
+
+	private static int bit(KitType slot)
+	{
+		return 1 << slot.ordinal();
+	}
+
+	private static int bit(ColorType type)
+	{
+		return 1 << type.ordinal();
+	}
+
+	@Nullable
+	private static Integer idOrNull(int id)
+	{
+		return id != NONE ? id : null;
+	}
+
+	// region Queries
+
+	@Nullable
+	Integer getItem(KitType slot)
+	{
+		return idOrNull(itemIds[slot.ordinal()]);
+	}
+
+	@Nullable
+	Integer getKit(KitType slot)
+	{
+		return idOrNull(kitIds[slot.ordinal()]);
+	}
+
+	@Nullable
+	Integer getColor(ColorType type)
+	{
+		return idOrNull(colorIds[type.ordinal()]);
+	}
+
+	boolean hasItem(KitType slot)
+	{
+		return itemIds[slot.ordinal()] != NONE;
+	}
+
+	boolean hasKit(KitType slot)
+	{
+		return kitIds[slot.ordinal()] != NONE;
+	}
+
+	boolean hasColor(ColorType type)
+	{
+		return colorIds[type.ordinal()] != NONE;
+	}
+
+	boolean isHidden(KitType slot)
+	{
+		return (hiddenMask & bit(slot)) != 0;
+	}
+
+	boolean isKitLocked(KitType slot)
+	{
+		return (lockedKitMask & bit(slot)) != 0;
+	}
+
+	boolean isItemLocked(KitType slot)
+	{
+		return (lockedItemMask & bit(slot)) != 0;
+	}
+
+	boolean isColorLocked(ColorType type)
+	{
+		return (lockedColorMask & bit(type)) != 0;
+	}
+
+	Map<KitType, Integer> items()
+	{
+		return toMap(SLOTS, itemIds);
+	}
+
+	Map<KitType, Integer> kits()
+	{
+		return toMap(SLOTS, kitIds);
+	}
+
+	Map<ColorType, Integer> colors()
+	{
+		return toMap(COLOR_TYPES, colorIds);
+	}
+
+	Set<KitType> hiddenSlots()
+	{
+		ImmutableSet.Builder<KitType> builder = ImmutableSet.builder();
+		for (KitType slot : SLOTS)
+		{
+			if (isHidden(slot))
+			{
+				builder.add(slot);
+			}
+		}
+		return builder.build();
+	}
+
+	private static <K> Map<K, Integer> toMap(K[] keys, int[] ids)
+	{
+		ImmutableMap.Builder<K, Integer> builder = ImmutableMap.builder();
+		for (int i = 0; i < keys.length; i++)
+		{
+			if (ids[i] != NONE)
+			{
+				builder.put(keys[i], ids[i]);
+			}
+		}
+		return builder.build();
+	}
+
+	// endregion
+
+	// region Changes
+
+	/**
+	 * also un-hides the slot
+	 */
+	OutfitState withItem(KitType slot, int itemId)
+	{
+		if (itemIds[slot.ordinal()] == itemId && !isHidden(slot))
+		{
+			return this;
+		}
+		return new OutfitState(with(itemIds, slot.ordinal(), itemId), kitIds, hiddenMask & ~bit(slot), colorIds, icon,
+			lockedKitMask, lockedItemMask, lockedColorMask, iconLocked);
+	}
+
+	/**
+	 * removes any item from the slot and hides it
+	 */
+	OutfitState withNothing(KitType slot)
+	{
+		if (!hasItem(slot) && isHidden(slot))
+		{
+			return this;
+		}
+		return new OutfitState(with(itemIds, slot.ordinal(), NONE), kitIds, hiddenMask | bit(slot), colorIds, icon,
+			lockedKitMask, lockedItemMask, lockedColorMask, iconLocked);
+	}
+
+	/**
+	 * removes any item from the slot and un-hides it
+	 */
+	OutfitState withoutItem(KitType slot)
+	{
+		if (!hasItem(slot) && !isHidden(slot))
+		{
+			return this;
+		}
+		return new OutfitState(with(itemIds, slot.ordinal(), NONE), kitIds, hiddenMask & ~bit(slot), colorIds, icon,
+			lockedKitMask, lockedItemMask, lockedColorMask, iconLocked);
+	}
+
+	OutfitState withKit(KitType slot, int kitId)
+	{
+		if (kitIds[slot.ordinal()] == kitId)
+		{
+			return this;
+		}
+		return new OutfitState(itemIds, with(kitIds, slot.ordinal(), kitId), hiddenMask, colorIds, icon,
+			lockedKitMask, lockedItemMask, lockedColorMask, iconLocked);
+	}
+
+	OutfitState withoutKit(KitType slot)
+	{
+		return withKit(slot, NONE);
+	}
+
+	OutfitState withColor(ColorType type, int colorId)
+	{
+		if (colorIds[type.ordinal()] == colorId)
+		{
+			return this;
+		}
+		return new OutfitState(itemIds, kitIds, hiddenMask, with(colorIds, type.ordinal(), colorId), icon,
+			lockedKitMask, lockedItemMask, lockedColorMask, iconLocked);
+	}
+
+	OutfitState withoutColor(ColorType type)
+	{
+		return withColor(type, NONE);
+	}
+
+	OutfitState withIcon(@Nullable JawIcon icon)
+	{
+		if (this.icon == icon)
+		{
+			return this;
+		}
+		return new OutfitState(itemIds, kitIds, hiddenMask, colorIds, icon, lockedKitMask, lockedItemMask,
+			lockedColorMask, iconLocked);
+	}
+
+	OutfitState withKitLocked(KitType slot, boolean locked)
+	{
+		return withLocks(setBit(lockedKitMask, bit(slot), locked), lockedItemMask, lockedColorMask, iconLocked);
+	}
+
+	OutfitState withItemLocked(KitType slot, boolean locked)
+	{
+		return withLocks(lockedKitMask, setBit(lockedItemMask, bit(slot), locked), lockedColorMask, iconLocked);
+	}
+
+	OutfitState withColorLocked(ColorType type, boolean locked)
+	{
+		return withLocks(lockedKitMask, lockedItemMask, setBit(lockedColorMask, bit(type), locked), iconLocked);
+	}
+
+	OutfitState withIconLocked(boolean locked)
+	{
+		return withLocks(lockedKitMask, lockedItemMask, lockedColorMask, locked);
+	}
+
+	OutfitState withoutLocks()
+	{
+		return withLocks(0, 0, 0, false);
+	}
+
+	private OutfitState withLocks(int lockedKitMask, int lockedItemMask, int lockedColorMask, boolean iconLocked)
+	{
+		if (lockedKitMask == this.lockedKitMask && lockedItemMask == this.lockedItemMask &&
+			lockedColorMask == this.lockedColorMask && iconLocked == this.iconLocked)
+		{
+			return this;
+		}
+		return new OutfitState(itemIds, kitIds, hiddenMask, colorIds, icon, lockedKitMask, lockedItemMask,
+			lockedColorMask, iconLocked);
+	}
+
+	private static int[] with(int[] ids, int index, int id)
+	{
+		int[] result = ids.clone();
+		result[index] = id;
+		return result;
+	}
+
+	private static int setBit(int mask, int bit, boolean set)
+	{
+		return set ? mask | bit : mask & ~bit;
+	}
+
+	// endregion
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (this == o)
+		{
+			return true;
+		}
+		if (!(o instanceof OutfitState))
+		{
+			return false;
+		}
+		OutfitState other = (OutfitState) o;
+		return hash == other.hash &&
+			hiddenMask == other.hiddenMask &&
+			icon == other.icon &&
+			lockedKitMask == other.lockedKitMask &&
+			lockedItemMask == other.lockedItemMask &&
+			lockedColorMask == other.lockedColorMask &&
+			iconLocked == other.iconLocked &&
+			Arrays.equals(itemIds, other.itemIds) &&
+			Arrays.equals(kitIds, other.kitIds) &&
+			Arrays.equals(colorIds, other.colorIds);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Long.hashCode(hash);
+	}
+}
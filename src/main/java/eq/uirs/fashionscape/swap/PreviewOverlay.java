@@ -0,0 +1,119 @@
+package eq.uirs.fashionscape.swap;
+
+import eq.uirs.fashionscape.data.ColorType;
+import java.util.Arrays;
+import net.runelite.api.Player;
+import net.runelite.api.PlayerComposition;
+import net.runelite.api.kit.KitType;
+
+/**
+ * The composition values replaced by hover previews, so that leaving a preview writes back only those slots instead
+ * of reapplying every swap. Only the value from before the first preview write to each slot is kept.
+ * Can only be used on the client thread.
+ */
+class PreviewOverlay
+{
+	private static final KitType[] SLOTS = KitType.values();
+	private static final ColorType[] COLOR_TYPES = ColorType.values();
+
+	// by slot/color type ordinal
+	private final int[] equipmentIds = new int[SLOTS.length];
+	private final boolean[] equipmentReplaced = new boolean[SLOTS.length];
+	private final int[] colorIds = new int[COLOR_TYPES.length];
+	private final boolean[] colorsReplaced = new boolean[COLOR_TYPES.length];
+	private Integer idleAnimationId = null;
+	private boolean empty = true;
+
+	void recordEquipment(KitType slot, int previousId)
+	{
+		if (!equipmentReplaced[slot.ordinal()])
+		{
+			equipmentReplaced[slot.ordinal()] = true;
+			equipmentIds[slot.ordinal()] = previousId;
+			empty = false;
+		}
+	}
+
+	void recordColor(ColorType type, int previousId)
+	{
+		if (!colorsReplaced[type.ordinal()])
+		{
+			colorsReplaced[type.ordinal()] = true;
+			colorIds[type.ordinal()] = previousId;
+			empty = false;
+		}
+	}
+
+	void recordIdleAnimation(int previousId)
+	{
+		if (idleAnimationId == null)
+		{
+			idleAnimationId = previousId;
+			empty = false;
+		}
+	}
+
+	// the slot was changed for real, so there's no preview left to undo there
+	void forgetEquipment(KitType slot)
+	{
+		equipmentReplaced[slot.ordinal()] = false;
+	}
+
+	void forgetColor(ColorType type)
+	{
+		colorsReplaced[type.ordinal()] = false;
+	}
+
+	void forgetIdleAnimation()
+	{
+		idleAnimationId = null;
+	}
+
+	boolean isEmpty()
+	{
+		return empty;
+	}
+
+	/**
+	 * writes the replaced values back and then forgets them
+	 *
+	 * @return whether the composition was changed (and so needs rehashing)
+	 */
+	boolean restore(PlayerComposition composition, Player player)
+	{
+		boolean changed = false;
+		int[] compositionEquipmentIds = composition.getEquipmentIds();
+		for (KitType slot : SLOTS)
+		{
+			int index = slot.getIndex();
+			if (equipmentReplaced[slot.ordinal()] && compositionEquipmentIds[index] != equipmentIds[slot.ordinal()])
+			{
+				compositionEquipmentIds[index] = equipmentIds[slot.ordinal()];
+				changed = true;
+			}
+		}
+		int[] compositionColors = composition.getColors();
+		for (ColorType type : COLOR_TYPES)
+		{
+			if (colorsReplaced[type.ordinal()] && compositionColors[type.ordinal()] != colorIds[type.ordinal()])
+			{
+				compositionColors[type.ordinal()] = colorIds[type.ordinal()];
+				changed = true;
+			}
+		}
+		if (idleAnimationId != null)
+		{
+			player.setIdlePoseAnimation(idleAnimationId);
+		}
+		clear();
+		return changed;
+	}
+
+	void clear()
+	{
+		Arrays.fill(equipmentReplaced, false);
+		Arrays.fill(colorsReplaced, false);
+		idleAnimationId = null;
+		empty = true;
+	}
+}
@@ -13,7 +13,11 @@ public enum RandomizerIntelligence
 	NONE(1),
 	LOW(15),
 	MODERATE(30),
-	HIGH(50);
+	HIGH(50),
+	// keeps picking outfits (at low depth) until the time budget runs out, then uses the best one
+	TIMED(15),
+	// searches all open slots together for the most coherent outfit instead of picking slot by slot
+	OPTIMIZED(50);
 
 	private final int depth;
 }
@@ -0,0 +1,186 @@
+package eq.uirs.fashionscape.swap;
+
+import eq.uirs.fashionscape.FashionscapeConfig;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import net.runelite.api.kit.KitType;
+import org.apache.commons.lang3.SerializationUtils;
+
+/**
+ * Items recently applied by the randomizer, per slot, so that shuffles can favour things the user hasn't seen lately.
+ * Each slot keeps a ring buffer of its last few items plus a counting Bloom filter over it, so that checking an item
+ * is constant time. Persisted to config between sessions.
+ */
+@Singleton
+class RecentItems
+{
+	private static final int DEBOUNCE_DELAY_MS = 500;
+	// how many items are remembered per slot
+	private static final int CAPACITY = 40;
+	// 512 counters per slot's filter, ~13 per remembered item. with two hashes, false positives are
+	// (1 - e^(-80/512))^2, about 2%: such items are just passed over a little more often than they need to be
+	private static final int FILTER_BITS = 9;
+	private static final int FILTER_SIZE = 1 << FILTER_BITS;
+	private static final KitType[] SLOTS = KitType.values();
+
+	private final FashionscapeConfig config;
+	private final ScheduledExecutorService executor;
+
+	// oldest item is at head, newest at head + size - 1 (mod capacity)
+	private final int[][] rings = new int[SLOTS.length][CAPACITY];
+	private final int[] heads = new int[SLOTS.length];
+	private final int[] sizes = new int[SLOTS.length];
+	private final byte[][] filters = new byte[SLOTS.length][FILTER_SIZE];
+
+	// copy of the filters handed out until something changes
+	private Snapshot snapshot = null;
+	private Future<?> saveFuture;
+
+	/**
+	 * An immutable copy of which items were recent at one point, so that planning against it gives the same result
+	 * however many items are recorded afterwards.
+	 */
+	static final class Snapshot
+	{
+		private final byte[][] filters;
+
+		private Snapshot(byte[][] filters)
+		{
+			this.filters = filters;
+		}
+
+		/**
+		 * whether the item was applied to the slot recently (may rarely be wrong in favour of true)
+		 */
+		boolean contains(KitType slot, int itemId)
+		{
+			byte[] filter = filters[slot.ordinal()];
+			return filter[hash1(itemId)] > 0 && filter[hash2(itemId)] > 0;
+		}
+	}
+
+	@Inject
+	RecentItems(FashionscapeConfig config, ScheduledExecutorService executor)
+	{
+		this.config = config;
+		this.executor = executor;
+	}
+
+	/**
+	 * the recent items as of now. the same instance is returned until more items are recorded
+	 */
+	synchronized Snapshot snapshot()
+	{
+		if (snapshot == null)
+		{
+			byte[][] copy = new byte[SLOTS.length][];
+			for (int i = 0; i < SLOTS.length; i++)
+			{
+				copy[i] = filters[i].clone();
+			}
+			snapshot = new Snapshot(copy);
+		}
+		return snapshot;
+	}
+
+	void recordAll(Map<KitType, Integer> items)
+	{
+		synchronized (this)
+		{
+			items.forEach(this::record);
+		}
+		saveDebounced();
+	}
+
+	synchronized void load()
+	{
+		snapshot = null;
+		for (int i = 0; i < SLOTS.length; i++)
+		{
+			heads[i] = 0;
+			sizes[i] = 0;
+			filters[i] = new byte[FILTER_SIZE];
+		}
+		try
+		{
+			Map<KitType, ArrayList<Integer>> saved = SerializationUtils.deserialize(config.recentItems());
+			saved.forEach((slot, itemIds) -> itemIds.forEach(itemId -> record(slot, itemId)));
+		}
+		catch (Exception ignored)
+		{
+			// ignore
+		}
+	}
+
+	private void record(KitType slot, int itemId)
+	{
+		snapshot = null;
+		int s = slot.ordinal();
+		byte[] filter = filters[s];
+		if (sizes[s] == CAPACITY)
+		{
+			// evict the oldest
+			int evicted = rings[s][heads[s]];
+			filter[hash1(evicted)]--;
+			filter[hash2(evicted)]--;
+			heads[s] = (heads[s] + 1) % CAPACITY;
+			sizes[s]--;
+		}
+		rings[s][(heads[s] + sizes[s]) % CAPACITY] = itemId;
+		sizes[s]++;
+		// counters can't overflow since at most CAPACITY items are counted at once
+		filter[hash1(itemId)]++;
+		filter[hash2(itemId)]++;
+	}
+
+	private synchronized HashMap<KitType, ArrayList<Integer>> savedItems()
+	{
+		HashMap<KitType, ArrayList<Integer>> result = new HashMap<>();
+		for (KitType slot : SLOTS)
+		{
+			int s = slot.ordinal();
+			if (sizes[s] == 0)
+			{
+				continue;
+			}
+			ArrayList<Integer> itemIds = new ArrayList<>(sizes[s]);
+			for (int i = 0; i < sizes[s]; i++)
+			{
+				itemIds.add(rings[s][(heads[s] + i) % CAPACITY]);
+			}
+			result.put(slot, itemIds);
+		}
+		return result;
+	}
+
+	private void saveDebounced()
+	{
+		Future<?> future = saveFuture;
+		if (future != null)
+		{
+			future.cancel(false);
+		}
+		saveFuture = executor.schedule(() -> {
+			byte[] bytes = SerializationUtils.serialize(savedItems());
+			config.setRecentItems(bytes);
+		}, DEBOUNCE_DELAY_MS, TimeUnit.MILLISECONDS);
+	}
+
+	// multiplicative hashes, taking the top bits since those depend on every bit of the id
+	private static int hash1(int itemId)
+	{
+		return (itemId * 0x9E3779B1) >>> (32 - FILTER_BITS);
+	}
+
+	private static int hash2(int itemId)
+	{
+		return (itemId * 0x85EBCA6B + 0x632BE5AB) >>> (32 - FILTER_BITS);
+	}
+}
@@ -1,8 +1,5 @@
 package eq.uirs.fashionscape.swap;
 
-import com.google.common.base.Objects;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
 import eq.uirs.fashionscape.FashionscapeConfig;
 import eq.uirs.fashionscape.data.ColorType;
 import eq.uirs.fashionscape.data.kit.ArmsKit;
@@ -23,16 +20,17 @@ import eq.uirs.fashionscape.swap.event.KnownKitChanged;
 import eq.uirs.fashionscape.swap.event.LockChanged;
 import eq.uirs.fashionscape.swap.event.SwapEvent;
 import eq.uirs.fashionscape.swap.event.SwapEventListener;
+import eq.uirs.fashionscape.swap.event.SwapEventType;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -50,6 +48,7 @@ import org.apache.commons.lang3.SerializationUtils;
 class SavedSwaps
 {
 	private static final int DEBOUNCE_DELAY_MS = 500;
+	private static final SwapEventType[] EVENT_TYPES = SwapEventType.values();
 	// when player's kit info is not known, fall back to showing some default values
 	private static final Map<KitType, Integer> FALLBACK_MASC_KITS = new HashMap<>();
 	private static final Map<KitType, Integer> FALLBACK_FEM_KITS = new HashMap<>();
@@ -91,24 +90,15 @@ class SavedSwaps
 	@Getter
 	private JawIcon realIcon = JawIcon.NOTHING;
 
-	private final HashMap<KitType, Integer> swappedItemIds = new HashMap<>();
-	private final HashMap<KitType, Integer> swappedKitIds = new HashMap<>();
-	private final HashMap<ColorType, Integer> swappedColorIds = new HashMap<>();
-	// swapped icon is stored as item id
-	@Getter
-	private JawIcon swappedIcon = null;
-	// currently only applicable for slots that exclusively hold items
-	@Getter
-	private final HashSet<KitType> hiddenSlots = new HashSet<>();
-
-	private final Set<KitType> lockedKits = new HashSet<>();
+	// swaps, hidden slots and locks. replaced (never modified) on every change, and only while holding this object's
+	// lock, since locks are toggled from the swing thread.
 	// If kit is locked, item must also be locked. If item is unlocked, kit must also be unlocked.
 	// Only valid state where locks differ is item locked, kit unlocked
-	private final Set<KitType> lockedItems = new HashSet<>();
-	private final Set<ColorType> lockedColors = new HashSet<>();
-	private boolean lockedIcon = false;
+	@Getter
+	private volatile OutfitState state = OutfitState.EMPTY;
 
-	private final Map<String, List<SwapEventListener<? extends SwapEvent>>> listeners = new HashMap<>();
+	// listeners by event type ordinal. copy-on-write, so events can be delivered while listeners are being changed
+	private volatile SwapEventListener<?>[][] listeners = noListeners();
 
 	// should only load once since config might be behind local state
 	private boolean hasLoadedConfig = false;
@@ -116,6 +106,19 @@ class SavedSwaps
 	private Future<?> kitsSaveFuture = null;
 	private Future<?> equipSaveFuture = null;
 
+	// nesting depth of batches. while above 0, saves are deferred until the batch ends
+	private int batchDepth = 0;
+	// events fired since the last client tick, by event type ordinal and batch index (only the latest is kept).
+	// guarded by itself, since locks are toggled from the swing thread
+	private final SwapEvent[][] pendingEvents = noPendingEvents();
+	private final boolean[] pendingTypes = new boolean[EVENT_TYPES.length];
+	// what flushEvents hands to listeners, by event type ordinal. reused every tick, so only used on the client thread
+	private final EventBuffer[] deliveryBuffers = noDeliveryBuffers();
+	// bumped whenever the player's real kits, colors or icon change
+	private final AtomicInteger version = new AtomicInteger();
+	private boolean equipSavePending = false;
+	private boolean colorSavePending = false;
+
 	/**
 	 * Reads saved swaps from config. Should be called after listeners are set (i.e., after panels created)
 	 */
@@ -169,6 +172,7 @@ class SavedSwaps
 		try
 		{
 			realKitIds.putAll(SerializationUtils.deserialize(realKits));
+			version.incrementAndGet();
 		}
 		catch (Exception ignored)
 		{
@@ -176,56 +180,141 @@ class SavedSwaps
 		}
 	}
 
-	void addEventListener(SwapEventListener<? extends SwapEvent> listener)
+	private static SwapEventListener<?>[][] noListeners()
 	{
-		String key = listener.getKey();
-		List<SwapEventListener<?>> list = listeners.getOrDefault(key, new LinkedList<>());
-		list.add(listener);
-		listeners.put(key, list);
+		SwapEventListener<?>[][] result = new SwapEventListener<?>[EVENT_TYPES.length][];
+		Arrays.fill(result, new SwapEventListener<?>[0]);
+		return result;
 	}
 
-	void removeListeners()
+	private static EventBuffer[] noDeliveryBuffers()
 	{
-		listeners.clear();
+		EventBuffer[] result = new EventBuffer[EVENT_TYPES.length];
+		for (SwapEventType type : EVENT_TYPES)
+		{
+			result[type.ordinal()] = new EventBuffer(type.getBatchSize());
+		}
+		return result;
 	}
 
-	Set<Map.Entry<KitType, Integer>> itemEntries()
+	/**
+	 * A read-only list over a reused array, so that delivering events doesn't allocate. Only valid until the next flush.
+	 */
+	private static final class EventBuffer extends AbstractList<SwapEvent> implements RandomAccess
 	{
-		return ImmutableSet.copyOf(swappedItemIds.entrySet());
+		private final SwapEvent[] events;
+		private int size = 0;
+
+		EventBuffer(int capacity)
+		{
+			events = new SwapEvent[capacity];
+		}
+
+		@Override
+		public SwapEvent get(int index)
+		{
+			if (index < 0 || index >= size)
+			{
+				throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+			}
+			return events[index];
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		void clear()
+		{
+			Arrays.fill(events, 0, size, null);
+			size = 0;
+		}
 	}
 
-	Set<Map.Entry<KitType, Integer>> hiddenSlotEntries()
+	private static SwapEvent[][] noPendingEvents()
 	{
-		return ImmutableSet.copyOf(
-			hiddenSlots.stream()
-				.collect(Collectors.toMap(v -> v, v -> 0))
-				.entrySet()
-		);
+		SwapEvent[][] result = new SwapEvent[EVENT_TYPES.length][];
+		for (SwapEventType type : EVENT_TYPES)
+		{
+			result[type.ordinal()] = new SwapEvent[type.getBatchSize()];
+		}
+		return result;
 	}
 
-	Set<Map.Entry<KitType, Integer>> kitEntries()
+	// safe to call from any thread
+	synchronized void addEventListener(SwapEventListener<? extends SwapEvent> listener)
 	{
-		return ImmutableSet.copyOf(swappedKitIds.entrySet());
+		int t = listener.getEventType().ordinal();
+		SwapEventListener<?>[][] updated = listeners.clone();
+		SwapEventListener<?>[] current = updated[t];
+		updated[t] = Arrays.copyOf(current, current.length + 1);
+		updated[t][current.length] = listener;
+		listeners = updated;
+	}
+
+	// safe to call from any thread
+	synchronized void removeEventListener(SwapEventListener<? extends SwapEvent> listener)
+	{
+		int t = listener.getEventType().ordinal();
+		SwapEventListener<?>[] current = listeners[t];
+		int index = -1;
+		for (int i = 0; i < current.length && index < 0; i++)
+		{
+			if (current[i] == listener)
+			{
+				index = i;
+			}
+		}
+		if (index < 0)
+		{
+			return;
+		}
+		SwapEventListener<?>[] reduced = new SwapEventListener<?>[current.length - 1];
+		System.arraycopy(current, 0, reduced, 0, index);
+		System.arraycopy(current, index + 1, reduced, index, reduced.length - index);
+		SwapEventListener<?>[][] updated = listeners.clone();
+		updated[t] = reduced;
+		listeners = updated;
+	}
+
+	synchronized void removeListeners()
+	{
+		listeners = noListeners();
+		synchronized (pendingEvents)
+		{
+			for (int t = 0; t < EVENT_TYPES.length; t++)
+			{
+				Arrays.fill(pendingEvents[t], null);
+				pendingTypes[t] = false;
+			}
+		}
 	}
 
 	Set<Map.Entry<ColorType, Integer>> colorEntries()
 	{
-		return ImmutableSet.copyOf(swappedColorIds.entrySet());
+		return state.colors().entrySet();
 	}
 
 	Integer getItem(KitType slot)
 	{
-		return swappedItemIds.get(slot);
+		return state.getItem(slot);
 	}
 
 	Integer getKit(KitType slot)
 	{
-		return swappedKitIds.get(slot);
+		return state.getKit(slot);
 	}
 
 	Integer getColor(ColorType type)
 	{
-		return swappedColorIds.get(type);
+		return state.getColor(type);
+	}
+
+	JawIcon getSwappedIcon()
+	{
+		return state.getIcon();
 	}
 
 	Integer getRealColor(ColorType type)
@@ -267,34 +356,31 @@ class SavedSwaps
 
 	boolean containsSlot(KitType slot)
 	{
-		if (swappedKitIds.containsKey(slot))
-		{
-			return true;
-		}
-		return containsItem(slot);
+		OutfitState current = state;
+		return current.hasKit(slot) || current.hasItem(slot);
 	}
 
 	boolean containsItem(KitType slot)
 	{
-		return swappedItemIds.containsKey(slot);
+		return state.hasItem(slot);
 	}
 
 	boolean containsIcon()
 	{
-		return swappedIcon != null;
+		return state.getIcon() != null;
 	}
 
 	boolean isHidden(KitType slot)
 	{
-		return hiddenSlots.contains(slot);
+		return state.isHidden(slot);
 	}
 
 	boolean containsColor(ColorType type)
 	{
-		return swappedColorIds.containsKey(type);
+		return state.hasColor(type);
 	}
 
-	void putItem(KitType slot, Integer itemId)
+	synchronized void putItem(KitType slot, Integer itemId)
 	{
 		if (isSlotLocked(slot))
 		{
@@ -304,9 +390,9 @@ class SavedSwaps
 		{
 			log.warn("putting jaw {} - this should not happen", itemId);
 		}
-		Integer oldId = swappedItemIds.put(slot, itemId);
-		hiddenSlots.remove(slot);
-		if (swappedKitIds.containsKey(slot))
+		Integer oldId = state.getItem(slot);
+		state = state.withItem(slot, itemId);
+		if (state.hasKit(slot))
 		{
 			removeKit(slot);
 		}
@@ -317,12 +403,11 @@ class SavedSwaps
 		}
 	}
 
-	void putIcon(JawIcon icon)
+	synchronized void putIcon(JawIcon icon)
 	{
-		Integer previousId = swappedIcon != null ? swappedIcon.getId() : null;
-		Integer newId = icon != null ? icon.getId() : null;
-		swappedIcon = icon;
-		if (!Objects.equal(previousId, newId))
+		JawIcon previous = state.getIcon();
+		state = state.withIcon(icon);
+		if (previous != icon)
 		{
 			fireEvent(new IconChanged(icon));
 			saveEquipmentConfigDebounced();
@@ -330,29 +415,30 @@ class SavedSwaps
 	}
 
 	// this differs from removing, which leaves the slot open for the real item/kit to show
-	void putNothing(KitType slot)
+	synchronized void putNothing(KitType slot)
 	{
-		if (lockedItems.contains(slot))
+		if (isItemLocked(slot))
 		{
 			return;
 		}
-		Integer oldId = swappedItemIds.remove(slot);
-		boolean wasNotHidden = hiddenSlots.add(slot);
-		if (oldId != null || wasNotHidden)
+		OutfitState previous = state;
+		state = previous.withNothing(slot);
+		if (state != previous)
 		{
 			fireEvent(new ItemChanged(slot, -1));
 			saveEquipmentConfigDebounced();
 		}
 	}
 
-	void putKit(KitType slot, Integer kitId)
+	synchronized void putKit(KitType slot, Integer kitId)
 	{
-		if (lockedKits.contains(slot))
+		if (isKitLocked(slot))
 		{
 			return;
 		}
-		Integer oldId = swappedKitIds.put(slot, kitId);
-		if (swappedItemIds.containsKey(slot))
+		Integer oldId = state.getKit(slot);
+		state = state.withKit(slot, kitId);
+		if (state.hasItem(slot))
 		{
 			removeItem(slot);
 		}
@@ -363,9 +449,10 @@ class SavedSwaps
 		}
 	}
 
-	void putColor(ColorType type, Integer colorId)
+	synchronized void putColor(ColorType type, Integer colorId)
 	{
-		Integer oldId = swappedColorIds.put(type, colorId);
+		Integer oldId = state.getColor(type);
+		state = state.withColor(type, colorId);
 		if (!colorId.equals(oldId))
 		{
 			fireEvent(new ColorChanged(type, colorId));
@@ -379,18 +466,26 @@ class SavedSwaps
 		Integer oldKitId = realKitIds.put(slot, kitId);
 		if (!kitId.equals(oldKitId))
 		{
+			version.incrementAndGet();
 			saveRealKitsDebounced();
 		}
 	}
 
 	void putRealColor(ColorType type, Integer colorId)
 	{
-		realColorIds.put(type, colorId);
+		if (!colorId.equals(realColorIds.put(type, colorId)))
+		{
+			version.incrementAndGet();
+		}
 	}
 
 	void putRealIcon(JawIcon icon)
 	{
-		realIcon = icon;
+		if (realIcon != icon)
+		{
+			realIcon = icon;
+			version.incrementAndGet();
+		}
 	}
 
 	void removeSlot(KitType slot)
@@ -399,64 +494,73 @@ class SavedSwaps
 		removeKit(slot);
 	}
 
-	private void removeItem(KitType slot)
+	private synchronized void removeItem(KitType slot)
 	{
 		if (isItemLocked(slot))
 		{
 			return;
 		}
-		Integer oldId = swappedItemIds.remove(slot);
-		boolean wasHidden = hiddenSlots.remove(slot);
-		if (oldId != null || wasHidden)
+		OutfitState previous = state;
+		state = previous.withoutItem(slot);
+		if (state != previous)
 		{
 			fireEvent(new ItemChanged(slot, null));
 			saveEquipmentConfigDebounced();
 		}
 	}
 
-	private void removeKit(KitType slot)
+	private synchronized void removeKit(KitType slot)
 	{
 		if (isKitLocked(slot))
 		{
 			return;
 		}
-		Integer oldId = swappedKitIds.remove(slot);
-		if (oldId != null)
+		OutfitState previous = state;
+		state = previous.withoutKit(slot);
+		if (state != previous)
 		{
 			fireEvent(new KitChanged(slot, null));
 			saveEquipmentConfigDebounced();
 		}
 	}
 
-	void removeColor(ColorType type)
+	synchronized void removeColor(ColorType type)
 	{
-		Integer oldId = swappedColorIds.remove(type);
-		if (oldId != null)
+		OutfitState previous = state;
+		state = previous.withoutColor(type);
+		if (state != previous)
 		{
 			fireEvent(new ColorChanged(type, null));
 			saveColorConfigDebounced();
 		}
 	}
 
-	void removeIcon()
+	synchronized void removeIcon()
 	{
-		if (swappedIcon != null)
+		OutfitState previous = state;
+		state = previous.withIcon(null);
+		if (state != previous)
 		{
-			swappedIcon = null;
 			fireEvent(new IconChanged(null));
 			saveEquipmentConfigDebounced();
 		}
 	}
 
-	void clearSwapped()
+	// locked slots/colors are skipped by the removals themselves
+	synchronized void clearSwapped()
 	{
-		Set<KitType> swappedItems = Sets.union(new HashSet<>(swappedItemIds.keySet()), new HashSet<>(hiddenSlots));
-		Set<KitType> itemSlots = Sets.difference(swappedItems, lockedItems);
-		itemSlots.forEach(this::removeItem);
-		Set<KitType> kitSlots = Sets.difference(new HashSet<>(swappedKitIds.keySet()), lockedKits);
-		kitSlots.forEach(this::removeKit);
-		Set<ColorType> colorTypes = Sets.difference(new HashSet<>(swappedColorIds.keySet()), lockedColors);
-		colorTypes.forEach(this::removeColor);
+		for (KitType slot : KitType.values())
+		{
+			removeItem(slot);
+			removeKit(slot);
+		}
+		for (ColorType type : ColorType.values())
+		{
+			if (!isColorLocked(type))
+			{
+				removeColor(type);
+			}
+		}
 		removeIcon();
 	}
 
@@ -464,6 +568,7 @@ class SavedSwaps
 	{
 		boolean realKitsNeedRefresh = realKitIds.isEmpty();
 		realKitIds.clear();
+		version.incrementAndGet();
 		if (realKitsNeedRefresh)
 		{
 			saveRealKitsImmediate();
@@ -472,55 +577,57 @@ class SavedSwaps
 
 	Set<KitType> getAllLockedKits()
 	{
+		OutfitState current = state;
 		return Arrays.stream(KitType.values())
-			.filter(lockedKits::contains)
+			.filter(current::isKitLocked)
 			.collect(Collectors.toSet());
 	}
 
-	void setLockedKits(Set<KitType> kits)
+	synchronized void setLockedKits(Set<KitType> kits)
 	{
 		for (KitType slot : KitType.values())
 		{
-			if (lockedKits.contains(slot) && !kits.contains(slot))
-			{
-				lockedKits.remove(slot);
-				fireEvent(new LockChanged(slot, false, LockChanged.Type.KIT));
-			}
-			else if (!lockedKits.contains(slot) && kits.contains(slot))
+			boolean locked = kits.contains(slot);
+			if (isKitLocked(slot) != locked)
 			{
-				lockedKits.add(slot);
-				fireEvent(new LockChanged(slot, true, LockChanged.Type.KIT));
+				state = state.withKitLocked(slot, locked);
+				fireEvent(new LockChanged(slot, locked, LockChanged.Type.KIT));
 			}
 		}
 	}
 
 	Set<KitType> getAllLockedItems()
 	{
+		OutfitState current = state;
 		return Arrays.stream(KitType.values())
-			.filter(lockedItems::contains)
+			.filter(current::isItemLocked)
 			.collect(Collectors.toSet());
 	}
 
-	void setLockedItems(Set<KitType> items)
+	synchronized void setLockedItems(Set<KitType> items)
 	{
 		for (KitType slot : KitType.values())
 		{
-			if (lockedItems.contains(slot) && !items.contains(slot))
+			boolean locked = items.contains(slot);
+			if (isItemLocked(slot) != locked)
 			{
-				lockedItems.remove(slot);
-				fireEvent(new LockChanged(slot, false, LockChanged.Type.ITEM));
-			}
-			else if (!lockedItems.contains(slot) && items.contains(slot))
-			{
-				lockedItems.add(slot);
-				fireEvent(new LockChanged(slot, true, LockChanged.Type.ITEM));
+				state = state.withItemLocked(slot, locked);
+				fireEvent(new LockChanged(slot, locked, LockChanged.Type.ITEM));
 			}
 		}
 	}
 
-	void setIconLocked(boolean locked)
+	synchronized void setIconLocked(boolean locked)
 	{
-		lockedIcon = locked;
+		state = state.withIconLocked(locked);
+	}
+
+	/**
+	 * changes whenever the player's real kits, colors or icon change. swaps and locks are tracked by the state instead
+	 */
+	int getVersion()
+	{
+		return version.get();
 	}
 
 	boolean isSlotLocked(KitType slot)
@@ -530,112 +637,184 @@ class SavedSwaps
 
 	boolean isKitLocked(KitType slot)
 	{
-		return lockedKits.contains(slot);
+		return state.isKitLocked(slot);
 	}
 
 	boolean isItemLocked(KitType slot)
 	{
-		return lockedItems.contains(slot);
+		return state.isItemLocked(slot);
 	}
 
 	boolean isColorLocked(ColorType type)
 	{
-		return lockedColors.contains(type);
+		return state.isColorLocked(type);
 	}
 
 	boolean isIconLocked()
 	{
-		return lockedIcon;
+		return state.isIconLocked();
 	}
 
-	void toggleItemLocked(KitType slot)
+	synchronized void toggleItemLocked(KitType slot)
 	{
-		if (lockedItems.contains(slot))
+		if (isItemLocked(slot))
 		{
-			lockedItems.remove(slot);
 			// if item unlocks, kit must also unlock
-			lockedKits.remove(slot);
+			state = state.withItemLocked(slot, false).withKitLocked(slot, false);
 			fireEvent(new LockChanged(slot, false, LockChanged.Type.KIT));
 		}
 		else
 		{
-			lockedItems.add(slot);
+			state = state.withItemLocked(slot, true);
 		}
 		fireEvent(new LockChanged(slot, isItemLocked(slot), LockChanged.Type.ITEM));
 	}
 
-	void toggleKitLocked(KitType slot)
+	synchronized void toggleKitLocked(KitType slot)
 	{
-		if (lockedKits.contains(slot))
+		if (isKitLocked(slot))
 		{
-			lockedKits.remove(slot);
+			state = state.withKitLocked(slot, false);
 		}
 		else
 		{
-			lockedKits.add(slot);
 			// if kit is locked, item must be locked too
-			lockedItems.add(slot);
+			state = state.withKitLocked(slot, true).withItemLocked(slot, true);
 			fireEvent(new LockChanged(slot, true, LockChanged.Type.ITEM));
 		}
 		fireEvent(new LockChanged(slot, isSlotLocked(slot), LockChanged.Type.KIT));
 	}
 
-	void toggleColorLocked(ColorType type)
+	synchronized void toggleColorLocked(ColorType type)
 	{
-		if (lockedColors.contains(type))
-		{
-			lockedColors.remove(type);
-		}
-		else
-		{
-			lockedColors.add(type);
-		}
+		state = state.withColorLocked(type, !isColorLocked(type));
 		fireEvent(new ColorLockChanged(type, isColorLocked(type)));
 	}
 
-	void toggleIconLocked()
+	synchronized void toggleIconLocked()
 	{
-		lockedIcon = !lockedIcon;
+		state = state.withIconLocked(!isIconLocked());
 		fireEvent(new IconLockChanged(isIconLocked()));
 	}
 
-	void removeAllLocks()
+	synchronized void removeAllLocks()
 	{
-		Set<KitType> slotClears = new HashSet<>(lockedKits);
-		slotClears.addAll(lockedItems);
-		Set<ColorType> colorClears = new HashSet<>(lockedColors);
-		lockedKits.clear();
-		lockedItems.clear();
-		lockedColors.clear();
-		lockedIcon = false;
-		slotClears.forEach(slot -> fireEvent(new LockChanged(slot, false, LockChanged.Type.BOTH)));
-		colorClears.forEach(type -> fireEvent(new ColorLockChanged(type, false)));
+		OutfitState previous = state;
+		state = previous.withoutLocks();
+		for (KitType slot : KitType.values())
+		{
+			if (previous.isKitLocked(slot) || previous.isItemLocked(slot))
+			{
+				fireEvent(new LockChanged(slot, false, LockChanged.Type.BOTH));
+			}
+		}
+		for (ColorType type : ColorType.values())
+		{
+			if (previous.isColorLocked(type))
+			{
+				fireEvent(new ColorLockChanged(type, false));
+			}
+		}
 		fireEvent(new IconLockChanged(false));
 	}
 
-	void removeSlotLock(KitType slot)
+	synchronized void removeSlotLock(KitType slot)
 	{
-		lockedKits.remove(slot);
-		lockedItems.remove(slot);
+		state = state.withKitLocked(slot, false).withItemLocked(slot, false);
 		fireEvent(new LockChanged(slot, false, LockChanged.Type.BOTH));
 	}
 
-	void removeColorLock(ColorType type)
+	synchronized void removeColorLock(ColorType type)
 	{
-		lockedColors.remove(type);
+		state = state.withColorLocked(type, false);
 		fireEvent(new ColorLockChanged(type, false));
 	}
 
-	void removeIconLock()
+	synchronized void removeIconLock()
 	{
-		lockedIcon = false;
+		state = state.withIconLocked(false);
 		fireEvent(new IconLockChanged(false));
 	}
 
+	/**
+	 * Holds back config saves until the matching endBatch, so that many changes are saved once.
+	 * Batches can be nested.
+	 */
+	void beginBatch()
+	{
+		batchDepth++;
+	}
+
+	void endBatch()
+	{
+		if (batchDepth == 0 || --batchDepth > 0)
+		{
+			return;
+		}
+		if (equipSavePending)
+		{
+			equipSavePending = false;
+			saveEquipmentConfigDebounced();
+		}
+		if (colorSavePending)
+		{
+			colorSavePending = false;
+			saveColorConfigDebounced();
+		}
+	}
+
+	/**
+	 * Delivers the events fired since the last call, so that listeners see one change set per tick rather than every
+	 * intermediate change. Each listener gets all of its events at once. Called on the client thread every tick.
+	 */
+	void flushEvents()
+	{
+		SwapEventListener<?>[][] currentListeners = listeners;
+		for (int t = 0; t < EVENT_TYPES.length; t++)
+		{
+			EventBuffer events = deliveryBuffers[t];
+			synchronized (pendingEvents)
+			{
+				if (!pendingTypes[t])
+				{
+					continue;
+				}
+				pendingTypes[t] = false;
+				SwapEvent[] pending = pendingEvents[t];
+				for (int i = 0; i < pending.length; i++)
+				{
+					if (pending[i] != null)
+					{
+						events.events[events.size++] = pending[i];
+						pending[i] = null;
+					}
+				}
+			}
+			try
+			{
+				for (SwapEventListener<?> listener : currentListeners[t])
+				{
+					listener.onEvents(events);
+				}
+			}
+			finally
+			{
+				// don't hold on to delivered events until the next flush
+				events.clear();
+			}
+		}
+	}
+
+	// doesn't allocate, since events are fired many times per swap
 	private void fireEvent(SwapEvent event)
 	{
-		String key = event.getKey();
-		listeners.getOrDefault(key, new LinkedList<>()).forEach(listener -> listener.onEvent(event));
+		int t = event.getEventType().ordinal();
+		synchronized (pendingEvents)
+		{
+			// a later event for the same slot replaces the earlier one
+			pendingEvents[t][event.getBatchIndex()] = event;
+			pendingTypes[t] = true;
+		}
 	}
 
 	// this needs to be immediate so that changes are reflected when loading from config
@@ -647,37 +826,44 @@ class SavedSwaps
 
 	private void saveEquipmentConfigDebounced()
 	{
+		if (batchDepth > 0)
+		{
+			equipSavePending = true;
+			return;
+		}
 		Future<?> future = equipSaveFuture;
 		if (future != null)
 		{
 			future.cancel(false);
 		}
 		equipSaveFuture = executor.schedule(() -> {
-			Map<KitType, Integer> itemEquips = swappedItemIds.entrySet().stream()
-				.collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue() + SwapManager.ITEM_OFFSET));
-			Map<KitType, Integer> kitEquips = swappedKitIds.entrySet().stream()
-				.collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue() + SwapManager.KIT_OFFSET));
-			Map<KitType, Integer> hides = hiddenSlots.stream()
-				.collect(Collectors.toMap(v -> v, v -> 0));
-			HashMap<KitType, Integer> equips = new HashMap<>(itemEquips);
-			equips.putAll(kitEquips);
-			equips.putAll(hides);
+			// a consistent snapshot, even if swaps change while saving
+			OutfitState current = state;
+			HashMap<KitType, Integer> equips = new HashMap<>();
+			current.items().forEach((slot, itemId) -> equips.put(slot, itemId + SwapManager.ITEM_OFFSET));
+			current.kits().forEach((slot, kitId) -> equips.put(slot, kitId + SwapManager.KIT_OFFSET));
+			current.hiddenSlots().forEach(slot -> equips.put(slot, 0));
 			byte[] bytes = SerializationUtils.serialize(equips);
 			config.setCurrentEquipment(bytes);
-			Integer iconId = swappedIcon != null ? swappedIcon.getId() : null;
-			config.setCurrentIcon(iconId);
+			JawIcon icon = current.getIcon();
+			config.setCurrentIcon(icon != null ? icon.getId() : null);
 		}, DEBOUNCE_DELAY_MS, TimeUnit.MILLISECONDS);
 	}
 
 	private void saveColorConfigDebounced()
 	{
+		if (batchDepth > 0)
+		{
+			colorSavePending = true;
+			return;
+		}
 		Future<?> future = colorSaveFuture;
 		if (future != null)
 		{
 			future.cancel(false);
 		}
 		colorSaveFuture = executor.schedule(() -> {
-			byte[] bytes = SerializationUtils.serialize(swappedColorIds);
+			byte[] bytes = SerializationUtils.serialize(new HashMap<>(state.colors()));
 			config.setCurrentColors(bytes);
 		}, DEBOUNCE_DELAY_MS, TimeUnit.MILLISECONDS);
 	}
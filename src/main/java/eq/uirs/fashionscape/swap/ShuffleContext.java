@@ -0,0 +1,43 @@
+package eq.uirs.fashionscape.swap;
+
+import eq.uirs.fashionscape.colors.ColorHarmony;
+import eq.uirs.fashionscape.data.ColorType;
+import eq.uirs.fashionscape.data.Colorable;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Snapshot of everything a randomizer outfit depends on (besides the seed), so that outfits can be generated
+ * off the client thread. Two equal contexts produce the same outfits for the same seeds.
+ */
+@Value
+class ShuffleContext
+{
+	Set<KitType> lockedSlots;
+	Set<ColorType> lockedColorTypes;
+	boolean hairLocked;
+	boolean jawLocked;
+	boolean armsLocked;
+	boolean iconShuffled;
+	// locked items (including the jaw icon's item) and colors that new picks are scored against
+	Map<KitType, Integer> lockedItems;
+	Map<ColorType, Colorable> lockedColors;
+	RandomizerIntelligence intelligence;
+	ColorHarmony harmony;
+	// how long timed/optimized intelligence may spend on one outfit
+	int timeBudgetMs;
+	Integer gender;
+	// slots whose base model may be randomized where the outfit leaves them bare. empty if base models are excluded,
+	// the gender isn't known, or only some slots are being shuffled
+	Set<KitType> kitSlots;
+	// the only slots being shuffled (everything else counts as locked), null when shuffling the whole outfit
+	@Nullable
+	Set<KitType> shuffledSlots;
+	// candidate item ids per slot (by KitType ordinal). pools are rebuilt rather than modified, so identity is enough
+	@EqualsAndHashCode.Exclude
+	int[][] pools;
+}
@@ -0,0 +1,32 @@
+package eq.uirs.fashionscape.swap;
+
+import eq.uirs.fashionscape.data.ColorType;
+import eq.uirs.fashionscape.data.kit.JawIcon;
+import java.util.Map;
+import javax.annotation.Nullable;
+import lombok.Value;
+import net.runelite.api.kit.KitType;
+
+/**
+ * A fully chosen (and scored) randomizer outfit, ready to be applied on the client thread.
+ */
+@Value
+class ShufflePlan
+{
+	long seed;
+	// slot -> item id
+	Map<KitType, Integer> items;
+	// slot -> kit id, for slots that the items (new and locked) leave bare
+	Map<KitType, Integer> kits;
+	// color type -> color id
+	Map<ColorType, Integer> colors;
+	// null if the icon shouldn't be changed
+	@Nullable
+	JawIcon icon;
+	// whether planning with the same seed and context gives this plan again. not the case if a time budget cut
+	// planning short, since how far it got depends on timing
+	boolean replayable;
+	// outfits that timed intelligence sampled before picking one, which replaying the seed needs to repeat since
+	// random shuffles sample until the time budget runs out. 0 for other intelligence
+	int samples;
+}
@@ -0,0 +1,714 @@
+package eq.uirs.fashionscape.swap;
+
+import eq.uirs.fashionscape.colors.ColorHarmony;
+import eq.uirs.fashionscape.colors.ColorScorer;
+import eq.uirs.fashionscape.colors.OutfitScore;
+import eq.uirs.fashionscape.colors.Palette;
+import eq.uirs.fashionscape.data.ColorType;
+import eq.uirs.fashionscape.data.Colorable;
+import eq.uirs.fashionscape.data.kit.JawIcon;
+import eq.uirs.fashionscape.data.kit.JawKit;
+import eq.uirs.fashionscape.data.kit.Kit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Chooses randomizer outfits from a snapshot of the lock state, without touching the client.
+ * Keeps a few outfits generated ahead of time on the executor so that shuffling only needs to apply one.
+ */
+@Slf4j
+@Singleton
+class ShufflePlanner
+{
+	// offsets of independent random streams within a seeded shuffle
+	private static final int SEED_STREAM_KITS = 32;
+	private static final int SEED_STREAM_SLOT_ORDER = 0;
+	private static final int SEED_STREAM_COLOR_ORDER = 1;
+	private static final int SEED_STREAM_ICON = 2;
+	private static final int SEED_STREAM_ITEMS = 16;
+	private static final int SEED_STREAM_COLORS = 48;
+	private static final int SEED_STREAM_TIMED = 80;
+
+	// how many random draws may be made per wanted candidate before giving up on a slot
+	private static final int MAX_DRAWS_PER_CANDIDATE = 10;
+	// how thoroughly each outfit is picked in timed mode, trading quality per outfit for number of outfits
+	private static final RandomizerIntelligence TIMED_SAMPLE_INTELLIGENCE = RandomizerIntelligence.LOW;
+	// seeds shown for timed plans are samples * TIMED_SEED_RANGE + seed, so that they say how many outfits to sample
+	private static final long TIMED_SEED_RANGE = 10_000_000_000L;
+	// outfits sampled in timed mode for a seed that doesn't say how many, e.g. one typed in by hand
+	private static final int DEFAULT_TIMED_SAMPLES = 200;
+	// so that a typed-in seed can't keep the executor busy for long
+	private static final int MAX_TIMED_SAMPLES = 100_000;
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
+	// how many fewer candidates are scored per slot when drawing from colour-weighted tables
+	private static final int WEIGHTED_DEPTH_DIVISOR = 5;
+	// sampling weight is score^sharpness (plus a floor so that every item can still be drawn)
+	private static final double SAMPLING_SHARPNESS = 4;
+	private static final double MIN_SAMPLING_WEIGHT = 0.01;
+	// how many outfits to keep ready, per queue
+	private static final int PREFETCH_SIZE = 3;
+	// how many sets of sampling tables to keep, e.g. for the full outfit and a slot group shuffled in between
+	private static final int SAMPLING_CACHE_SIZE = 4;
+	// how many random seeds to try for an outfit without recently applied items, before settling for the one with
+	// the fewest
+	private static final int MAX_NOVELTY_ATTEMPTS = 4;
+
+	private final ColorScorer colorScorer;
+	private final SlotRules slotRules;
+	private final ScheduledExecutorService executor;
+	private final OutfitOptimizer optimizer;
+
+	@Value
+	private static class Picks
+	{
+		// slot -> item id, open slots only
+		Map<KitType, Integer> items;
+		// color type -> colorable, open color types only
+		Map<ColorType, Colorable> colors;
+	}
+
+	// everything that sampling weights depend on
+	@Value
+	private static class SamplingKey
+	{
+		Map<KitType, Integer> lockedItems;
+		Map<ColorType, Colorable> lockedColors;
+		ColorHarmony harmony;
+		// item colors depend on gender
+		Integer gender;
+	}
+
+	@Value
+	private static class SamplingTables
+	{
+		// pools that the tables index into. pools are rebuilt rather than modified, so identity is enough
+		int[][] pools;
+		// by KitType ordinal, null where the pool is empty
+		AliasTable[] tables;
+	}
+
+	private static class PrefetchQueue
+	{
+		private final Deque<ShufflePlan> plans = new ArrayDeque<>();
+		// context that the plans were generated for, null once invalidated
+		private ShuffleContext context = null;
+		// recent items that new plans should avoid
+		private RecentItems.Snapshot recent = null;
+		// bumped whenever the plans become stale, so that plans still being generated are dropped
+		private int generation = 0;
+
+		boolean needsRefill()
+		{
+			return context != null && plans.size() < PREFETCH_SIZE;
+		}
+	}
+
+	// by the slots being shuffled (the null key for whole outfits), so that shuffling a slot group doesn't discard
+	// the whole outfit plans. there are only a few groups, so queues are kept once created
+	private final Map<Set<KitType>, PrefetchQueue> prefetchQueues = new HashMap<>();
+	private boolean refilling = false;
+
+	// least recently used first. guarded by its own lock
+	private final Map<SamplingKey, SamplingTables> samplingTables =
+		new LinkedHashMap<SamplingKey, SamplingTables>(SAMPLING_CACHE_SIZE, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<SamplingKey, SamplingTables> eldest)
+			{
+				return size() > SAMPLING_CACHE_SIZE;
+			}
+		};
+
+	@Inject
+	ShufflePlanner(ColorScorer colorScorer, SlotRules slotRules, ScheduledExecutorService executor)
+	{
+		this.colorScorer = colorScorer;
+		this.slotRules = slotRules;
+		this.executor = executor;
+		this.optimizer = new OutfitOptimizer(colorScorer, slotRules, this);
+	}
+
+	static long randomSeed()
+	{
+		return new Random().nextInt(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * the seed that gives the plan again, e.g. to show to the user. for timed plans this includes how many outfits
+	 * were sampled
+	 */
+	static long replaySeed(ShufflePlan plan)
+	{
+		long seed = plan.getSeed();
+		if (plan.getSamples() > 0 && seed >= 0 && seed < TIMED_SEED_RANGE)
+		{
+			return plan.getSamples() * TIMED_SEED_RANGE + seed;
+		}
+		return seed;
+	}
+
+	// independent, reproducible random stream for one part of a seeded shuffle
+	static Random seededRandom(long seed, int stream)
+	{
+		return new Random(mix64(seed + (stream + 1) * 0x9E3779B97F4A7C15L));
+	}
+
+	// splitmix64 finalizer, so that nearby seeds/streams produce unrelated sequences
+	private static long mix64(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * takes a prefetched outfit if one is ready for the given context
+	 */
+	@Nullable
+	synchronized ShufflePlan poll(ShuffleContext context)
+	{
+		PrefetchQueue queue = prefetchQueues.get(context.getShuffledSlots());
+		if (queue == null || !context.equals(queue.context))
+		{
+			return null;
+		}
+		return queue.plans.poll();
+	}
+
+	/**
+	 * starts generating outfits in the background (if needed) until enough are ready for the given context, avoiding
+	 * the given recent items. outfits prefetched for other slot groups are kept
+	 */
+	synchronized void prefetch(ShuffleContext context, @Nullable RecentItems.Snapshot recent)
+	{
+		PrefetchQueue queue = prefetchQueues.computeIfAbsent(context.getShuffledSlots(), k -> new PrefetchQueue());
+		if (!context.equals(queue.context))
+		{
+			queue.plans.clear();
+			queue.generation++;
+		}
+		queue.context = context;
+		// outfits still to be planned avoid the latest recent items
+		queue.recent = recent;
+		if (!refilling && queue.needsRefill())
+		{
+			refilling = true;
+			executor.submit(this::refill);
+		}
+	}
+
+	synchronized void invalidate()
+	{
+		synchronized (samplingTables)
+		{
+			samplingTables.clear();
+		}
+		for (PrefetchQueue queue : prefetchQueues.values())
+		{
+			queue.plans.clear();
+			queue.context = null;
+			queue.generation++;
+		}
+	}
+
+	// whole outfits first, since those are shuffled most
+	@Nullable
+	private PrefetchQueue nextToRefill()
+	{
+		PrefetchQueue whole = prefetchQueues.get(null);
+		if (whole != null && whole.needsRefill())
+		{
+			return whole;
+		}
+		for (PrefetchQueue queue : prefetchQueues.values())
+		{
+			if (queue.needsRefill())
+			{
+				return queue;
+			}
+		}
+		return null;
+	}
+
+	// plans one outfit per task, so that shuffles planned on the executor only wait for a single outfit
+	private void refill()
+	{
+		PrefetchQueue queue;
+		ShuffleContext context;
+		RecentItems.Snapshot recent;
+		int generation;
+		synchronized (this)
+		{
+			queue = nextToRefill();
+			if (queue == null)
+			{
+				refilling = false;
+				return;
+			}
+			context = queue.context;
+			recent = queue.recent;
+			generation = queue.generation;
+		}
+		try
+		{
+			ShufflePlan plan = planNovel(context, recent, true);
+			synchronized (this)
+			{
+				if (generation == queue.generation)
+				{
+					queue.plans.add(plan);
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			log.warn("error prefetching randomizer outfits", e);
+			synchronized (this)
+			{
+				refilling = false;
+			}
+			return;
+		}
+		executor.submit(this::refill);
+	}
+
+	/**
+	 * chooses items, colors and an icon for all unlocked slots. Safe to call from any thread.
+	 * If `timeLimited`, timed intelligence samples outfits until the time budget is used up and records how many, and
+	 * optimized intelligence may stop early, in which case the plan isn't replayable. Otherwise they always do the
+	 * same amount of work (timed intelligence as much as the seed says), so that the seed reproduces the plan.
+	 */
+	ShufflePlan plan(ShuffleContext context, long seed, boolean timeLimited)
+	{
+		switch (context.getIntelligence())
+		{
+			case OPTIMIZED:
+				return planOptimized(context, seed, timeLimited);
+			case TIMED:
+				return planTimed(context, seed, timeLimited);
+			default:
+				Palette palette = colorScorer.createPalette(context.getLockedItems(), context.getLockedColors());
+				Picks picks = pickGreedy(context, seed, context.getIntelligence(), palette, NO_DEADLINE);
+				return toPlan(context, seed, picks, palette, true, 0);
+		}
+	}
+
+	/**
+	 * plans outfits with random seeds until one has none of the recent items (or the attempts run out, in which case
+	 * the one with the fewest is used). Whether an outfit is new is only checked after planning it, so the plan's seed
+	 * alone reproduces it for anyone. Safe to call from any thread.
+	 */
+	ShufflePlan planNovel(ShuffleContext context, @Nullable RecentItems.Snapshot recent, boolean timeLimited)
+	{
+		ShufflePlan best = null;
+		int bestRepeats = Integer.MAX_VALUE;
+		for (int i = 0; i < MAX_NOVELTY_ATTEMPTS && bestRepeats > 0; i++)
+		{
+			ShufflePlan plan = plan(context, randomSeed(), timeLimited);
+			int repeats = repeats(plan, recent);
+			if (repeats < bestRepeats)
+			{
+				best = plan;
+				bestRepeats = repeats;
+			}
+		}
+		return best;
+	}
+
+	// how many of the plan's items were applied recently
+	private static int repeats(ShufflePlan plan, @Nullable RecentItems.Snapshot recent)
+	{
+		if (recent == null)
+		{
+			return 0;
+		}
+		int repeats = 0;
+		for (Map.Entry<KitType, Integer> e : plan.getItems().entrySet())
+		{
+			if (recent.contains(e.getKey(), e.getValue()))
+			{
+				repeats++;
+			}
+		}
+		return repeats;
+	}
+
+	/**
+	 * picks the best of a few random candidates for each open slot in turn, adding each pick to the palette.
+	 * null if the deadline passes first
+	 */
+	@Nullable
+	private Picks pickGreedy(ShuffleContext context, long seed, RandomizerIntelligence intelligence, Palette palette,
+		long deadline)
+	{
+		int size = intelligence.getDepth();
+		ColorHarmony harmony = context.getHarmony();
+		AliasTable[] tables = intelligence != RandomizerIntelligence.NONE ? samplingTablesFor(context) : null;
+
+		List<KitType> openSlots = new ArrayList<>();
+		for (KitType slot : KitType.values())
+		{
+			if (!context.getLockedSlots().contains(slot))
+			{
+				openSlots.add(slot);
+			}
+		}
+		Collections.shuffle(openSlots, seededRandom(seed, SEED_STREAM_SLOT_ORDER));
+
+		Map<KitType, Integer> newItems = new HashMap<>();
+		List<Integer> candidates = new ArrayList<>(size);
+		for (KitType slot : openSlots)
+		{
+			int[] pool = context.getPools()[slot.ordinal()];
+			if (pool.length == 0)
+			{
+				continue;
+			}
+			// Don't equip a shield if we already have a 2h weapon
+			if (slot == KitType.SHIELD && slotRules.isTwoHanded(newItems.get(KitType.WEAPON)))
+			{
+				continue;
+			}
+			boolean hasShield = context.getLockedSlots().contains(KitType.SHIELD) ||
+				newItems.containsKey(KitType.SHIELD);
+			// each slot draws from its own stream so results don't depend on how many draws other slots made
+			Random r = seededRandom(seed, SEED_STREAM_ITEMS + slot.ordinal());
+			// weighted draws are already likely to match, so fewer of them need scoring
+			AliasTable table = tables != null ? tables[slot.ordinal()] : null;
+			int wanted = table != null ? Math.max(1, size / WEIGHTED_DEPTH_DIVISOR) : size;
+			candidates.clear();
+			int maxDraws = wanted * MAX_DRAWS_PER_CANDIDATE;
+			for (int draws = 0; draws < maxDraws && candidates.size() < wanted; draws++)
+			{
+				if (pastDeadline(deadline))
+				{
+					return null;
+				}
+				int itemId = pool[table != null ? table.sample(r) : r.nextInt(pool.length)];
+				if (isCandidate(context, slot, itemId, hasShield))
+				{
+					candidates.add(itemId);
+				}
+			}
+			if (candidates.isEmpty())
+			{
+				continue;
+			}
+			int best;
+			if (size > 1)
+			{
+				best = candidates.stream()
+					.max(Comparator.comparingDouble(itemId -> colorScorer.score(palette, itemId, slot, harmony)))
+					.get();
+				colorScorer.putItem(palette, slot, best);
+			}
+			else
+			{
+				best = candidates.get(0);
+			}
+			newItems.put(slot, best);
+		}
+
+		// shuffle colors
+		Map<ColorType, Colorable> newColors = new HashMap<>();
+		List<ColorType> allColorTypes = Arrays.asList(ColorType.values().clone());
+		Collections.shuffle(allColorTypes, seededRandom(seed, SEED_STREAM_COLOR_ORDER));
+		for (ColorType type : allColorTypes)
+		{
+			if (context.getLockedColorTypes().contains(type))
+			{
+				continue;
+			}
+			if (pastDeadline(deadline))
+			{
+				return null;
+			}
+			List<Colorable> colorables = Arrays.asList(type.getColorables().clone());
+			if (colorables.isEmpty())
+			{
+				continue;
+			}
+			Collections.shuffle(colorables, seededRandom(seed, SEED_STREAM_COLORS + type.ordinal()));
+			int limit;
+			switch (intelligence)
+			{
+				case LOW:
+					limit = Math.max(1, colorables.size() / 4);
+					break;
+				case MODERATE:
+					limit = Math.max(1, colorables.size() / 2);
+					break;
+				case HIGH:
+					limit = colorables.size();
+					break;
+				default:
+					limit = 1;
+			}
+			Colorable best = colorables.stream()
+				.limit(limit)
+				.max(Comparator.comparingDouble(c -> colorScorer.score(palette, c, type, harmony)))
+				.orElse(colorables.get(0));
+			colorScorer.putColor(palette, type, best);
+			newColors.put(type, best);
+		}
+		return new Picks(newItems, newColors);
+	}
+
+	/**
+	 * builds the sampling tables that planning for the context will need, so that they're built here (on the
+	 * executor) rather than by whichever thread plans first
+	 */
+	void prepare(ShuffleContext context)
+	{
+		if (context.getIntelligence() != RandomizerIntelligence.NONE)
+		{
+			samplingTablesFor(context);
+		}
+	}
+
+	/**
+	 * tables for drawing items in proportion to how well they match the locked items/colors. they only depend on
+	 * those, the harmony and gender, so they're shared by every context with the same ones.
+	 * null if nothing is locked, since there's nothing to weight by
+	 */
+	@Nullable
+	private AliasTable[] samplingTablesFor(ShuffleContext context)
+	{
+		if (context.getLockedItems().isEmpty() && context.getLockedColors().isEmpty())
+		{
+			return null;
+		}
+		SamplingKey key = new SamplingKey(context.getLockedItems(), context.getLockedColors(), context.getHarmony(),
+			context.getGender());
+		synchronized (samplingTables)
+		{
+			SamplingTables cached = samplingTables.get(key);
+			if (cached == null || cached.getPools() != context.getPools())
+			{
+				cached = new SamplingTables(context.getPools(), buildSamplingTables(context));
+				samplingTables.put(key, cached);
+			}
+			return cached.getTables();
+		}
+	}
+
+	// tables for every slot (not just open ones), so that they can be shared by contexts with different open slots
+	private AliasTable[] buildSamplingTables(ShuffleContext context)
+	{
+		Palette locked = colorScorer.createPalette(context.getLockedItems(), context.getLockedColors());
+		AliasTable[] tables = new AliasTable[KitType.values().length];
+		for (KitType slot : KitType.values())
+		{
+			int[] pool = context.getPools()[slot.ordinal()];
+			if (pool.length == 0)
+			{
+				continue;
+			}
+			double[] weights = new double[pool.length];
+			for (int i = 0; i < pool.length; i++)
+			{
+				double score = colorScorer.score(locked, pool[i], slot, context.getHarmony());
+				weights[i] = MIN_SAMPLING_WEIGHT + Math.pow(score, SAMPLING_SHARPNESS);
+			}
+			tables[slot.ordinal()] = new AliasTable(weights);
+		}
+		return tables;
+	}
+
+	private ShufflePlan planOptimized(ShuffleContext context, long seed, boolean timeLimited)
+	{
+		OutfitOptimizer.Result result = optimizer.optimize(context, seed, timeLimited);
+		Picks picks = new Picks(result.getItems(), result.getColors());
+		return toPlan(context, seed, picks, paletteOf(context, picks), result.isComplete(), 0);
+	}
+
+	// skips the clock entirely when there's no deadline, since this is checked on every draw
+	private static boolean pastDeadline(long deadline)
+	{
+		return deadline != NO_DEADLINE && System.nanoTime() > deadline;
+	}
+
+	/**
+	 * generates greedy outfits and goes with the most coherent one. If `timeLimited`, outfits are generated until the
+	 * time budget is used up (the first is always finished, and one cut short is dropped), so faster machines sample
+	 * more. Otherwise as many are generated as the seed says (see {@link #replaySeed}). Either way the plan records
+	 * how many were sampled, so it's always replayable
+	 */
+	private ShufflePlan planTimed(ShuffleContext context, long seed, boolean timeLimited)
+	{
+		long baseSeed = seed;
+		int limit = DEFAULT_TIMED_SAMPLES;
+		if (seed >= TIMED_SEED_RANGE)
+		{
+			baseSeed = seed % TIMED_SEED_RANGE;
+			limit = (int) Math.min(seed / TIMED_SEED_RANGE, MAX_TIMED_SAMPLES);
+		}
+		if (timeLimited)
+		{
+			limit = MAX_TIMED_SAMPLES;
+		}
+		long deadline = timeLimited ? System.nanoTime() + context.getTimeBudgetMs() * 1_000_000L : NO_DEADLINE;
+		Random r = seededRandom(baseSeed, SEED_STREAM_TIMED);
+		Picks best = null;
+		Palette bestPalette = null;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		int samples = 0;
+		while (samples < limit && (samples == 0 || !pastDeadline(deadline)))
+		{
+			Palette palette = colorScorer.createPalette(context.getLockedItems(), context.getLockedColors());
+			Picks picks = pickGreedy(context, r.nextLong(), TIMED_SAMPLE_INTELLIGENCE, palette,
+				samples == 0 ? NO_DEADLINE : deadline);
+			if (picks == null)
+			{
+				break;
+			}
+			samples++;
+			double score = coherence(context, picks);
+			if (score > bestScore)
+			{
+				best = picks;
+				bestPalette = palette;
+				bestScore = score;
+			}
+		}
+		return toPlan(context, baseSeed, best, bestPalette, true, samples);
+	}
+
+	// overall colour coherence of the outfit including locked pieces
+	private double coherence(ShuffleContext context, Picks picks)
+	{
+		OutfitScore outfitScore = colorScorer.createOutfitScore(context.getLockedItems(), context.getLockedColors(),
+			context.getHarmony());
+		picks.getItems().forEach(outfitScore::putItem);
+		picks.getColors().forEach(outfitScore::putColor);
+		return outfitScore.getScore();
+	}
+
+	private Palette paletteOf(ShuffleContext context, Picks picks)
+	{
+		Map<KitType, Integer> allItems = new HashMap<>(context.getLockedItems());
+		allItems.putAll(picks.getItems());
+		Map<ColorType, Colorable> allColors = new HashMap<>(context.getLockedColors());
+		allColors.putAll(picks.getColors());
+		return colorScorer.createPalette(allItems, allColors);
+	}
+
+	// palette should contain the picks, since the icon is matched against them
+	private ShufflePlan toPlan(ShuffleContext context, long seed, Picks picks, Palette palette, boolean replayable,
+		int samples)
+	{
+		Map<ColorType, Integer> colorIds = new HashMap<>();
+		picks.getColors().forEach((type, colorable) -> colorIds.put(type, colorable.getColorId(type)));
+		JawIcon icon = context.isIconShuffled() ? chooseIcon(context, seed, palette) : null;
+		return new ShufflePlan(seed, picks.getItems(), chooseKits(context, seed, picks.getItems()), colorIds, icon,
+			replayable, samples);
+	}
+
+	/**
+	 * picks base models for the kit slots whose base model shows under the new and locked items. only depends on the
+	 * context, so that a seed doesn't give different base models depending on what's really equipped
+	 */
+	private Map<KitType, Integer> chooseKits(ShuffleContext context, long seed, Map<KitType, Integer> newItems)
+	{
+		Map<KitType, Integer> kits = new HashMap<>();
+		Integer gender = context.getGender();
+		if (gender == null || context.getKitSlots().isEmpty())
+		{
+			return kits;
+		}
+		Map<KitType, Integer> items = new HashMap<>(context.getLockedItems());
+		items.putAll(newItems);
+		for (KitType slot : context.getKitSlots())
+		{
+			if (!showsBaseModel(slot, items))
+			{
+				continue;
+			}
+			List<Integer> kitIds = new ArrayList<>();
+			for (Kit kit : Kit.allInSlot(slot, true))
+			{
+				Integer kitId = kit.getKitId(gender);
+				if (kitId != null)
+				{
+					kitIds.add(kitId);
+				}
+			}
+			if (!kitIds.isEmpty())
+			{
+				Random r = seededRandom(seed, SEED_STREAM_KITS + slot.ordinal());
+				kits.put(slot, kitIds.get(r.nextInt(kitIds.size())));
+			}
+		}
+		return kits;
+	}
+
+	// whether a slot's base model would be seen under the given items
+	private boolean showsBaseModel(KitType slot, Map<KitType, Integer> items)
+	{
+		if (items.containsKey(slot))
+		{
+			return false;
+		}
+		Integer headItemId = items.get(KitType.HEAD);
+		Integer torsoItemId = items.get(KitType.TORSO);
+		switch (slot)
+		{
+			case HAIR:
+				return headItemId == null || slotRules.showsHair(headItemId);
+			case JAW:
+				return headItemId == null || !slotRules.hidesJaw(headItemId);
+			case ARMS:
+				return torsoItemId == null || slotRules.showsArms(torsoItemId);
+			default:
+				return true;
+		}
+	}
+
+	private JawIcon chooseIcon(ShuffleContext context, long seed, Palette palette)
+	{
+		boolean smart = context.getIntelligence() != RandomizerIntelligence.NONE;
+		List<JawIcon> icons = Arrays.asList(JawIcon.values());
+		Collections.shuffle(icons, seededRandom(seed, SEED_STREAM_ICON));
+		int limit = smart ? icons.size() : 1;
+		// scored in shuffled order (not via a hash map) so that ties are broken the same way every time
+		JawIcon icon = JawIcon.NOTHING;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < limit; i++)
+		{
+			JawIcon candidate = icons.get(i);
+			Integer itemId = JawKit.NO_JAW.getIconItemId(candidate);
+			double score = itemId != null ? colorScorer.score(palette, itemId, null, context.getHarmony()) : 0;
+			// only icon swap if >75% match (if intelligence is > NONE)
+			if ((!smart || score > 0.75) && score > bestScore)
+			{
+				icon = candidate;
+				bestScore = score;
+			}
+		}
+		return icon;
+	}
+
+	// whether the randomizer may pick the item, given the context's base model locks
+	boolean isCandidate(ShuffleContext context, KitType slot, int itemId, boolean hasShield)
+	{
+		return slotRules.isCompatible(slot, itemId, hasShield, context.isHairLocked(), context.isJawLocked(),
+			context.isArmsLocked());
+	}
+}
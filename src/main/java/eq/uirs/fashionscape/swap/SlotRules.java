@@ -0,0 +1,145 @@
+package eq.uirs.fashionscape.swap;
+
+import eq.uirs.fashionscape.data.ItemInteractions;
+import java.util.BitSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.Value;
+import net.runelite.api.Client;
+import net.runelite.api.kit.KitType;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.game.ItemStats;
+
+/**
+ * Rules for which items can be worn together or hide base models, as bitsets over item ids so that checks are
+ * constant time. The two-handed table is built from item stats on the executor once per catalog; the rest come from
+ * ItemInteractions.
+ */
+@Singleton
+public class SlotRules
+{
+	private final Client client;
+	private final ItemManager itemManager;
+	private final ScheduledExecutorService executor;
+
+	@Value
+	private static class TwoHandedTable
+	{
+		// item ids of two-handed weapons. never modified once published
+		BitSet items;
+		// ids at or above this weren't in the catalog when the table was built
+		int bound;
+	}
+
+	// null until built, in which case items are looked up one at a time
+	private volatile TwoHandedTable twoHanded;
+	// bumped by every rebuild, so that a build started before it isn't published
+	private final AtomicInteger buildGeneration = new AtomicInteger();
+
+	@Inject
+	SlotRules(Client client, ItemManager itemManager, ScheduledExecutorService executor)
+	{
+		this.client = client;
+		this.itemManager = itemManager;
+		this.executor = executor;
+	}
+
+	/**
+	 * whether a helm still shows the hair base model
+	 */
+	public boolean showsHair(int headItemId)
+	{
+		return ItemInteractions.isHairHelm(headItemId);
+	}
+
+	/**
+	 * whether a helm hides the jaw base model
+	 */
+	public boolean hidesJaw(int headItemId)
+	{
+		return ItemInteractions.isNoJawHelm(headItemId);
+	}
+
+	/**
+	 * whether a torso still shows the arms base model
+	 */
+	public boolean showsArms(int torsoItemId)
+	{
+		return ItemInteractions.isArmsTorso(torsoItemId);
+	}
+
+	public boolean isTwoHanded(@Nullable Integer itemId)
+	{
+		if (itemId == null || itemId < 0)
+		{
+			return false;
+		}
+		TwoHandedTable table = twoHanded;
+		if (table == null || itemId >= table.getBound())
+		{
+			return lookUpTwoHanded(itemId);
+		}
+		return table.getItems().get(itemId);
+	}
+
+	/**
+	 * whether the randomizer may put an item in a slot, given what else is worn and which base models are locked
+	 */
+	public boolean isCompatible(KitType slot, int itemId, boolean hasShield, boolean hairLocked, boolean jawLocked,
+								boolean armsLocked)
+	{
+		switch (slot)
+		{
+			case WEAPON:
+				// Don't equip a 2h weapon if we already have a shield
+				return !hasShield || !isTwoHanded(itemId);
+			case HEAD:
+				// Don't equip a helm if it hides hair and hair is locked, or hides jaw and jaw is locked
+				return (showsHair(itemId) || !hairLocked) && (!hidesJaw(itemId) || !jawLocked);
+			case TORSO:
+				// Don't equip torso if it hides arms and arms is locked
+				return showsArms(itemId) || !armsLocked;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * drops tables derived from the item catalog and builds them again on the executor, e.g. on start up or when the
+	 * catalog changes. Until then, items are looked up one at a time.
+	 */
+	void rebuild()
+	{
+		twoHanded = null;
+		int generation = buildGeneration.incrementAndGet();
+		executor.submit(() -> {
+			int itemCount = client.getItemCount();
+			if (itemCount <= 0)
+			{
+				// catalog isn't loaded yet
+				return;
+			}
+			BitSet items = new BitSet(itemCount);
+			for (int i = 0; i < itemCount; i++)
+			{
+				if (lookUpTwoHanded(i))
+				{
+					items.set(i);
+				}
+			}
+			if (generation == buildGeneration.get())
+			{
+				twoHanded = new TwoHandedTable(items, itemCount);
+			}
+		});
+	}
+
+	private boolean lookUpTwoHanded(int itemId)
+	{
+		ItemStats stats = itemManager.getItemStats(itemId);
+		return stats != null && stats.isEquipable() && stats.getEquipment().isTwoHanded();
+	}
+}
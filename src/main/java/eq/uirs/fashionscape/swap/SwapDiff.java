@@ -1,24 +1,28 @@
 package eq.uirs.fashionscape.swap;
 
 import eq.uirs.fashionscape.data.ColorType;
-import java.util.HashMap;
-import java.util.Map;
+import javax.annotation.Nullable;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.Value;
 import net.runelite.api.kit.KitType;
 
 /**
- * Holds onto information about equipment and animations before a swap occurred
+ * Holds onto information about equipment and animations before a swap occurred.
+ * Slot and color changes are kept in arrays indexed by ordinal, with bitmasks of which entries are present. Instances
+ * are immutable and share their arrays, so merging copies at most one fixed-size array per kind of change.
  */
-@Getter
-@RequiredArgsConstructor
 @ToString
 @EqualsAndHashCode
 class SwapDiff
 {
+	private static final KitType[] SLOTS = KitType.values();
+	private static final ColorType[] COLOR_TYPES = ColorType.values();
+	private static final int[] NO_SLOT_IDS = new int[SLOTS.length];
+	private static final int[] NO_COLOR_IDS = new int[COLOR_TYPES.length];
+	private static final SwapDiff BLANK = new SwapDiff(NO_SLOT_IDS, 0, 0, NO_COLOR_IDS, 0, 0, null, null);
+
 	@Value
 	public static class Change
 	{
@@ -43,38 +47,183 @@ class SwapDiff
 
 	public static SwapDiff blank()
 	{
-		return new SwapDiff(new HashMap<>(), new HashMap<>(), null, null);
+		return BLANK;
+	}
+
+	static Builder builder()
+	{
+		return new Builder();
 	}
 
-	private final Map<KitType, Change> slotChanges;
-	private final Map<ColorType, Change> colorChanges;
+	// ids are 0 wherever the mask's bit isn't set. never modified once constructed
+	private final int[] slotIds;
+	private final int slotMask;
+	private final int slotUnnaturalMask;
+	private final int[] colorIds;
+	private final int colorMask;
+	private final int colorUnnaturalMask;
+	@Getter
 	private final Change iconChange;
+	@Getter
 	private final Integer changedIdleAnimationId;
 
+	private SwapDiff(int[] slotIds, int slotMask, int slotUnnaturalMask, int[] colorIds, int colorMask,
+		int colorUnnaturalMask, Change iconChange, Integer changedIdleAnimationId)
+	{
+		this.slotIds = slotIds;
+		this.slotMask = slotMask;
+		this.slotUnnaturalMask = slotUnnaturalMask;
+		this.colorIds = colorIds;
+		this.colorMask = colorMask;
+		this.colorUnnaturalMask = colorUnnaturalMask;
+		this.iconChange = iconChange;
+		this.changedIdleAnimationId = changedIdleAnimationId;
+	}
+
 	boolean isBlank()
 	{
-		return changedIdleAnimationId == null && iconChange == null && slotChanges.isEmpty() && colorChanges.isEmpty();
+		return changedIdleAnimationId == null && iconChange == null && slotMask == 0 && colorMask == 0;
+	}
+
+	@Nullable
+	Change getSlotChange(KitType slot)
+	{
+		int bit = 1 << slot.ordinal();
+		return (slotMask & bit) != 0 ? new Change(slotIds[slot.ordinal()], (slotUnnaturalMask & bit) != 0) : null;
+	}
+
+	@Nullable
+	Change getColorChange(ColorType type)
+	{
+		int bit = 1 << type.ordinal();
+		return (colorMask & bit) != 0 ? new Change(colorIds[type.ordinal()], (colorUnnaturalMask & bit) != 0) : null;
 	}
 
 	// This diff will take priority of the other diff in the event of a collision.
 	SwapDiff mergeOver(SwapDiff other)
 	{
-		Map<KitType, Change> mergedSlots = new HashMap<>();
-		mergedSlots.putAll(other.slotChanges);
-		mergedSlots.putAll(this.slotChanges);
-		Map<ColorType, Change> mergedColors = new HashMap<>();
-		mergedColors.putAll(other.colorChanges);
-		mergedColors.putAll(this.colorChanges);
-		Change iconChange = this.iconChange;
-		if (iconChange == null)
+		if (other.isBlank())
 		{
-			iconChange = other.iconChange;
+			return this;
 		}
-		Integer idleId = this.changedIdleAnimationId;
-		if (idleId == null)
+		if (this.isBlank())
+		{
+			return other;
+		}
+		return new SwapDiff(
+			mergeIds(slotIds, slotMask, other.slotIds, other.slotMask),
+			slotMask | other.slotMask,
+			slotUnnaturalMask | (other.slotUnnaturalMask & ~slotMask),
+			mergeIds(colorIds, colorMask, other.colorIds, other.colorMask),
+			colorMask | other.colorMask,
+			colorUnnaturalMask | (other.colorUnnaturalMask & ~colorMask),
+			iconChange != null ? iconChange : other.iconChange,
+			changedIdleAnimationId != null ? changedIdleAnimationId : other.changedIdleAnimationId
+		);
+	}
+
+	// shares whichever array already holds the merged result
+	private static int[] mergeIds(int[] ids, int mask, int[] otherIds, int otherMask)
+	{
+		if ((otherMask & ~mask) == 0)
+		{
+			return ids;
+		}
+		if (mask == 0)
+		{
+			return otherIds;
+		}
+		int[] result = otherIds.clone();
+		for (int bits = mask; bits != 0; bits &= bits - 1)
+		{
+			int i = Integer.numberOfTrailingZeros(bits);
+			result[i] = ids[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Collects the changes of a single swap. Later changes to the same slot/color type replace earlier ones.
+	 */
+	static class Builder
+	{
+		private final int[] slotIds = new int[SLOTS.length];
+		private int slotMask = 0;
+		private int slotUnnaturalMask = 0;
+		private final int[] colorIds = new int[COLOR_TYPES.length];
+		private int colorMask = 0;
+		private int colorUnnaturalMask = 0;
+		private Change iconChange = null;
+		private Integer changedIdleAnimationId = null;
+
+		private Builder()
+		{
+		}
+
+		/**
+		 * does nothing if change is null
+		 */
+		Builder slot(KitType slot, @Nullable Change change)
+		{
+			if (change != null)
+			{
+				int bit = 1 << slot.ordinal();
+				slotIds[slot.ordinal()] = change.getId();
+				slotMask |= bit;
+				slotUnnaturalMask = change.isUnnatural() ? slotUnnaturalMask | bit : slotUnnaturalMask & ~bit;
+			}
+			return this;
+		}
+
+		/**
+		 * does nothing if change is null
+		 */
+		Builder color(ColorType type, @Nullable Change change)
+		{
+			if (change != null)
+			{
+				int bit = 1 << type.ordinal();
+				colorIds[type.ordinal()] = change.getId();
+				colorMask |= bit;
+				colorUnnaturalMask = change.isUnnatural() ? colorUnnaturalMask | bit : colorUnnaturalMask & ~bit;
+			}
+			return this;
+		}
+
+		/**
+		 * does nothing if change is null
+		 */
+		Builder icon(@Nullable Change change)
+		{
+			if (change != null)
+			{
+				iconChange = change;
+			}
+			return this;
+		}
+
+		Builder idleAnimation(@Nullable Integer animationId)
+		{
+			changedIdleAnimationId = animationId;
+			return this;
+		}
+
+		SwapDiff build()
 		{
-			idleId = other.changedIdleAnimationId;
+			if (slotMask == 0 && colorMask == 0 && iconChange == null && changedIdleAnimationId == null)
+			{
+				return BLANK;
+			}
+			return new SwapDiff(
+				slotMask != 0 ? slotIds.clone() : NO_SLOT_IDS,
+				slotMask,
+				slotUnnaturalMask,
+				colorMask != 0 ? colorIds.clone() : NO_COLOR_IDS,
+				colorMask,
+				colorUnnaturalMask,
+				iconChange,
+				changedIdleAnimationId
+			);
 		}
-		return new SwapDiff(mergedSlots, mergedColors, iconChange, idleId);
 	}
 }
@@ -16,27 +16,38 @@ import eq.uirs.fashionscape.data.SkinColor;
 import eq.uirs.fashionscape.data.kit.JawIcon;
 import eq.uirs.fashionscape.data.kit.JawKit;
 import eq.uirs.fashionscape.data.kit.Kit;
+import eq.uirs.fashionscape.swap.event.ColorLockChangedListener;
+import eq.uirs.fashionscape.swap.event.IconLockChangedListener;
+import eq.uirs.fashionscape.swap.event.LockChangedListener;
 import eq.uirs.fashionscape.swap.event.SwapEvent;
 import eq.uirs.fashionscape.swap.event.SwapEventListener;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
@@ -45,11 +56,11 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import lombok.Setter;
-import lombok.Value;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
+import net.runelite.api.GameState;
 import net.runelite.api.InventoryID;
 import net.runelite.api.Item;
 import net.runelite.api.ItemComposition;
@@ -80,17 +91,18 @@ public class SwapManager
 	public static final int ITEM_OFFSET = PlayerComposition.ITEM_OFFSET;
 	public static final int KIT_OFFSET = PlayerComposition.KIT_OFFSET;
 
-	private static final Map<KitType, List<Kit>> KIT_TYPE_TO_KITS;
 	private static final List<KitType> NEVER_ZERO_SLOTS = ImmutableList.of(KitType.TORSO, KitType.LEGS,
 		KitType.HAIR, KitType.HANDS, KitType.BOOTS, KitType.JAW);
 	private static final String KIT_SUFFIX = "_KIT";
 	private static final String COLOR_SUFFIX = "_COLOR";
 	private static final String ICON_KEY = "ICON";
+	// how many generated outfits are named and written at a time
+	private static final int GENERATE_BATCH_SIZE = 25;
+	// pending hover request for leaving the hovered option
+	private static final Supplier<SwapDiff> HOVER_AWAY = SwapDiff::blank;
 
 	static
 	{
-		KIT_TYPE_TO_KITS = Arrays.stream(KitType.values())
-			.collect(Collectors.toMap(s -> s, s -> Arrays.asList(Kit.allInSlot(s, true))));
 		for (KitType slot : KitType.values())
 		{
 			for (Kit value : Kit.allInSlot(slot, true))
@@ -130,28 +142,66 @@ public class SwapManager
 	@Inject
 	private SavedSwaps savedSwaps;
 
-	private final SwapDiffHistory swapDiffHistory = new SwapDiffHistory(s -> this.restore(s, true));
+	@Inject
+	private CandidatePools candidatePools;
+
+	@Inject
+	private ShufflePlanner shufflePlanner;
+
+	@Inject
+	private SlotRules slotRules;
+
+	@Inject
+	private RecentItems recentItems;
+
+	@Inject
+	private ScheduledExecutorService executor;
+
+	private final SwapDiffHistory swapDiffHistory = new SwapDiffHistory(
+		s -> transact(t -> t.include(this.restore(s, true)))
+	);
 
-	@Setter
 	private Integer gender;
 	private String lastKnownPlayerName = null;
-	private SwapDiff hoverSwapDiff;
+	// seed of the most recent shuffle, if any and if it reproduces that shuffle
+	@Getter
+	private Long lastShuffleSeed = null;
+	// true while a shuffle is being planned on the executor, so that repeated presses don't queue up more of them
+	private boolean planningShuffle = false;
+	// composition values replaced by the current hover preview
+	private final PreviewOverlay previewOverlay = new PreviewOverlay();
+	// true while a hover preview is being applied
+	private boolean previewing = false;
+	// latest hover from the panels that hasn't been applied yet (HOVER_AWAY for leaving). set from the swing thread
+	private final AtomicReference<Supplier<SwapDiff>> pendingHover = new AtomicReference<>();
 	// slot -> override equipment id, used to disable the plugin's functionality per slot
 	private final Map<KitType, Integer> disabledSlots = new HashMap<>();
 	// idle anim id to switch to when weapon slot is disabled (sometimes sourced from non-weapons like minecart)
 	private Integer disabledAnimationId = null;
-
-	@Value
-	private static class Candidate
-	{
-		public int itemId;
-		public KitType slot;
-	}
+	// nesting depth of batchCompositionWrites. while above 0, the composition's hash is only recomputed at the end
+	private int compositionBatchDepth = 0;
+	// composition written to during the current batch, if any
+	private PlayerComposition pendingHashComposition = null;
+	// state right after the last refresh. refreshing again from the same state would change nothing
+	private PlayerComposition refreshedComposition = null;
+	private OutfitState refreshedState;
+	private int refreshedVersion;
+	private Integer refreshedGender;
+	private int[] refreshedEquipmentIds;
+	private int[] refreshedColors;
+	private Map<KitType, Integer> refreshedDisabledSlots;
 
 	public void startUp()
 	{
 		doPreRefreshCheck();
 		refreshAllSwaps();
+		recentItems.load();
+		// keep randomizer outfits ready for the current locks
+		Runnable prefetch = () -> clientThread.invokeLater(this::prefetchShuffles);
+		savedSwaps.addEventListener(new LockChangedListener(e -> prefetch.run()));
+		savedSwaps.addEventListener(new ColorLockChangedListener(e -> prefetch.run()));
+		savedSwaps.addEventListener(new IconLockChangedListener(e -> prefetch.run()));
+		prefetchShuffles();
 	}
 
 	public void shutDown()
@@ -159,7 +209,17 @@ public class SwapManager
 		revertSwaps(true, true);
 		savedSwaps.removeListeners();
 		swapDiffHistory.removeListeners();
-		hoverSwapDiff = null;
+		pendingHover.set(null);
+		previewOverlay.clear();
+	}
+
+	public void setGender(@Nullable Integer gender)
+	{
+		if (!Objects.equals(this.gender, gender))
+		{
+			colorScorer.setGender(gender);
+		}
+		this.gender = gender;
 	}
 
 	public void onPlayerChanged()
@@ -167,6 +227,16 @@ public class SwapManager
 		doPreRefreshCheck();
 		savedSwaps.loadFromConfig();
 		refreshAllSwaps();
+		prefetchShuffles();
+	}
+
+	/**
+	 * applies the latest hover preview and delivers saved swap events fired since the last tick
+	 */
+	public void onClientTick()
+	{
+		applyPendingHover();
+		savedSwaps.flushEvents();
 	}
 
 	public void addEventListener(SwapEventListener<? extends SwapEvent> listener)
@@ -174,6 +244,11 @@ public class SwapManager
 		savedSwaps.addEventListener(listener);
 	}
 
+	public void removeEventListener(SwapEventListener<? extends SwapEvent> listener)
+	{
+		savedSwaps.removeEventListener(listener);
+	}
+
 	public void addUndoQueueChangeListener(Consumer<Integer> listener)
 	{
 		swapDiffHistory.addUndoQueueChangeListener(listener);
@@ -232,17 +307,52 @@ public class SwapManager
 	// this should only be called from the client thread
 	public void refreshAllSwaps()
 	{
-		Map<KitType, Integer> savedEquipmentIds = savedSwaps.itemEntries().stream().collect(
-			Collectors.toMap(Map.Entry::getKey, e -> e.getValue() + ITEM_OFFSET)
-		);
-		Map<KitType, Integer> savedKitEquipIds = savedSwaps.kitEntries().stream().collect(
-			Collectors.toMap(Map.Entry::getKey, e -> e.getValue() + KIT_OFFSET)
-		);
-		Map<KitType, Integer> hiddenEquipIds = savedSwaps.getHiddenSlots().stream().collect(
-			Collectors.toMap(v -> v, v -> 0)
-		);
-		savedEquipmentIds.putAll(savedKitEquipIds);
-		savedEquipmentIds.putAll(hiddenEquipIds);
+		Player player = client.getLocalPlayer();
+		PlayerComposition composition = player != null ? player.getPlayerComposition() : null;
+		if (composition != null && composition == refreshedComposition &&
+			savedSwaps.getState() == refreshedState &&
+			savedSwaps.getVersion() == refreshedVersion &&
+			Objects.equals(gender, refreshedGender) &&
+			disabledSlots.equals(refreshedDisabledSlots) &&
+			Arrays.equals(composition.getEquipmentIds(), refreshedEquipmentIds) &&
+			Arrays.equals(composition.getColors(), refreshedColors))
+		{
+			// the player already shows exactly what a refresh would apply
+			return;
+		}
+		batchCompositionWrites(this::doRefreshAllSwaps);
+		if (composition != null)
+		{
+			refreshedComposition = composition;
+			refreshedState = savedSwaps.getState();
+			refreshedVersion = savedSwaps.getVersion();
+			refreshedGender = gender;
+			refreshedEquipmentIds = composition.getEquipmentIds().clone();
+			refreshedColors = composition.getColors().clone();
+			refreshedDisabledSlots = new HashMap<>(disabledSlots);
+		}
+	}
+
+	private void doRefreshAllSwaps()
+	{
+		Map<KitType, Integer> savedEquipmentIds = new HashMap<>();
+		for (KitType slot : KitType.values())
+		{
+			Integer itemId = savedSwaps.getItem(slot);
+			Integer kitId = savedSwaps.getKit(slot);
+			if (savedSwaps.isHidden(slot))
+			{
+				savedEquipmentIds.put(slot, 0);
+			}
+			else if (kitId != null)
+			{
+				savedEquipmentIds.put(slot, kitId + KIT_OFFSET);
+			}
+			else if (itemId != null)
+			{
+				savedEquipmentIds.put(slot, itemId + ITEM_OFFSET);
+			}
+		}
 		for (CompoundSwap c : CompoundSwap.fromMap(sanitize(savedEquipmentIds), savedSwaps.getSwappedIcon()))
 		{
 			swap(c, SwapMode.PREVIEW);
@@ -308,7 +418,7 @@ public class SwapManager
 		}
 		int gender = playerComposition.getGender();
 		checkRealKits(gender);
-		this.gender = gender;
+		setGender(gender);
 		if (!Objects.equals(lastKnownPlayerName, player.getName()))
 		{
 			savedSwaps.loadRSProfileConfig();
@@ -347,14 +457,14 @@ public class SwapManager
 		}
 		int bootKitId = playerComposition.getKitId(KitType.BOOTS);
 		int weaponItemId = playerComposition.getEquipmentIds()[KitType.WEAPON.getIndex()] - ITEM_OFFSET;
-		if (ItemInteractions.DISABLE_BOOT_KITS.contains(bootKitId))
+		if (ItemInteractions.isDisableBootKit(bootKitId))
 		{
 			disabledAnimationId = IdleAnimationID.MINECART;
 			disabledSlots.put(KitType.BOOTS, bootKitId + KIT_OFFSET);
 			disabledSlots.put(KitType.WEAPON, 0);
 			disabledSlots.put(KitType.SHIELD, 0);
 		}
-		else if (ItemInteractions.DISABLE_WEAPONS.contains(weaponItemId))
+		else if (ItemInteractions.isDisableWeapon(weaponItemId))
 		{
 			disabledSlots.put(KitType.WEAPON, weaponItemId + ITEM_OFFSET);
 			disabledSlots.put(KitType.SHIELD, 0);
@@ -432,9 +542,9 @@ public class SwapManager
 				{
 					case HEAD:
 						if ((savedSwaps.containsSlot(KitType.HAIR) &&
-							!ItemInteractions.HAIR_HELMS.contains(inventoryItemId)) ||
+							!slotRules.showsHair(inventoryItemId)) ||
 							(savedSwaps.containsSlot(KitType.JAW) &&
-								ItemInteractions.NO_JAW_HELMS.contains(inventoryItemId)))
+								slotRules.hidesJaw(inventoryItemId)))
 						{
 							swap(CompoundSwap.single(KitType.HEAD, 0), SwapMode.PREVIEW);
 						}
@@ -446,7 +556,7 @@ public class SwapManager
 						break;
 					case TORSO:
 						if (savedSwaps.containsSlot(KitType.ARMS) &&
-							!ItemInteractions.ARMS_TORSOS.contains(inventoryItemId))
+							!slotRules.showsArms(inventoryItemId))
 						{
 							int kitId = savedSwaps.getRealKit(kitType, gender);
 							swap(CompoundSwap.single(kitType, kitId + KIT_OFFSET), SwapMode.PREVIEW);
@@ -467,54 +577,19 @@ public class SwapManager
 		Set<KitType> slotsToRemove)
 	{
 		clientThread.invokeLater(() -> {
-			// prepare swaps for import
-			Map<KitType, Integer> itemEquipSwaps = newItems.entrySet().stream().collect(
-				Collectors.toMap(Map.Entry::getKey, e -> e.getValue() + ITEM_OFFSET)
-			);
-			Map<KitType, Integer> kitEquipSwaps = newKits.entrySet().stream().collect(
-				Collectors.toMap(Map.Entry::getKey, e -> e.getValue() + KIT_OFFSET)
-			);
-			Map<KitType, Integer> removals = slotsToRemove.stream().collect(
-				Collectors.toMap(v -> v, v -> 0)
-			);
-			Map<KitType, Integer> equipSwaps = new HashMap<>(kitEquipSwaps);
-			equipSwaps.putAll(itemEquipSwaps);
-			equipSwaps.putAll(removals);
-
-			// remove locks and revert everything on player
-			savedSwaps.removeAllLocks();
-			SwapDiff iconRevert = doRevertIcon();
-			SwapDiff kitRevert = Arrays.stream(KitType.values())
-				.map(this::doRevert)
-				.filter(Objects::nonNull)
-				.reduce(SwapDiff::mergeOver)
-				.orElse(SwapDiff.blank());
-			SwapDiff colorRevert = Arrays.stream(ColorType.values())
-				.map(this::doRevert)
-				.reduce(SwapDiff::mergeOver)
-				.orElse(SwapDiff.blank());
-
-			SwapDiff equips = CompoundSwap.fromMap(sanitize(equipSwaps), icon).stream()
-				.map(c -> this.swap(c, SwapMode.SAVE))
-				.reduce(SwapDiff::mergeOver)
-				.orElse(SwapDiff.blank());
-
-			Map<ColorType, Integer> colorSwaps = newColors.entrySet().stream()
-				.filter(e -> !savedSwaps.isColorLocked(e.getKey()))
-				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-			Map<ColorType, Integer> colorEquipSwaps = colorSwaps.entrySet().stream().collect(
-				Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)
-			);
-
-			SwapDiff colors = colorEquipSwaps.entrySet().stream()
-				.map(e -> this.swapColor(e.getKey(), e.getValue(), true))
-				.reduce(SwapDiff::mergeOver)
-				.orElse(SwapDiff.blank());
-			SwapDiff total = iconRevert
-				.mergeOver(kitRevert)
-				.mergeOver(colorRevert)
-				.mergeOver(equips)
-				.mergeOver(colors);
+			SwapDiff total = transact(t -> {
+				// remove locks and revert everything on player
+				savedSwaps.removeAllLocks();
+				t.revertIcon();
+				Arrays.stream(KitType.values()).forEach(t::revertSlot);
+				Arrays.stream(ColorType.values()).forEach(t::revertColor);
+
+				newKits.forEach(t::putKit);
+				newItems.forEach(t::putItem);
+				slotsToRemove.forEach(t::putNothing);
+				t.putIcon(icon);
+				newColors.forEach(t::putColor);
+			});
 			swapDiffHistory.appendToUndo(total);
 		});
 	}
@@ -522,9 +597,20 @@ public class SwapManager
 	// this should only be called from the client thread
 	public List<String> stringifySwaps()
 	{
-		Set<Map.Entry<KitType, Integer>> itemEntries = new HashSet<>(savedSwaps.hiddenSlotEntries());
-		itemEntries.addAll(savedSwaps.itemEntries());
-		List<String> items = itemEntries.stream()
+		OutfitState state = savedSwaps.getState();
+		Map<KitType, Integer> items = new HashMap<>(state.items());
+		state.hiddenSlots().forEach(slot -> items.put(slot, 0));
+		return stringifySwaps(items, state.kits(), state.colors(), state.getIcon());
+	}
+
+	/**
+	 * outfit file lines for the given swaps (item id 0 means the slot is hidden).
+	 * Can only be called from the client thread, since item names are looked up.
+	 */
+	private List<String> stringifySwaps(Map<KitType, Integer> itemIds, Map<KitType, Integer> kitIds,
+										Map<ColorType, Integer> colorIds, @Nullable JawIcon icon)
+	{
+		List<String> items = itemIds.entrySet().stream()
 			.sorted(Comparator.comparingInt(Map.Entry::getValue))
 			.map(e -> {
 				KitType slot = e.getKey();
@@ -540,7 +626,7 @@ public class SwapManager
 				}
 			})
 			.collect(Collectors.toList());
-		List<String> kits = savedSwaps.kitEntries().stream()
+		List<String> kits = kitIds.entrySet().stream()
 			.sorted(Comparator.comparingInt(Map.Entry::getValue))
 			.map(e -> {
 				KitType slot = e.getKey();
@@ -549,7 +635,7 @@ public class SwapManager
 				return slot.name() + KIT_SUFFIX + ":" + kitId + " (" + kitName + ")";
 			})
 			.collect(Collectors.toList());
-		List<String> colors = savedSwaps.colorEntries().stream()
+		List<String> colors = colorIds.entrySet().stream()
 			.sorted(Comparator.comparingInt(Map.Entry::getValue))
 			.map(e -> {
 				ColorType type = e.getKey();
@@ -562,8 +648,7 @@ public class SwapManager
 			})
 			.collect(Collectors.toList());
 		List<String> icons = new ArrayList<>();
-		JawIcon icon = savedSwaps.getSwappedIcon();
-		if (savedSwaps.containsIcon())
+		if (icon != null)
 		{
 			icons.add(ICON_KEY + ":" + icon.getId() + " (" + icon.getDisplayName() + ")");
 		}
@@ -625,20 +710,31 @@ public class SwapManager
 			.collect(Collectors.toMap(t -> t, t -> getColor.apply(t, savedSwaps.getColor(t))));
 	}
 
+	/**
+	 * the swapped outfit without its locks or the excluded color type, i.e. everything that colors are scored against.
+	 * useful as a cache key for anything derived from the colors of the current outfit.
+	 */
+	public OutfitState scoredState(@Nullable ColorType excludeColor)
+	{
+		OutfitState state = savedSwaps.getState().withoutLocks();
+		return excludeColor != null ? state.withoutColor(excludeColor) : state;
+	}
+
 	// this should only be called from the client thread
 	public void revert(KitType slot, ColorType type)
 	{
-		SwapDiff s = SwapDiff.blank();
-		if (slot != null)
-		{
-			savedSwaps.removeSlotLock(slot);
-			s = s.mergeOver(doRevert(slot));
-		}
-		if (type != null)
-		{
-			savedSwaps.removeColorLock(type);
-			s = s.mergeOver(doRevert(type));
-		}
+		SwapDiff s = transact(t -> {
+			if (slot != null)
+			{
+				savedSwaps.removeSlotLock(slot);
+				t.revertSlot(slot);
+			}
+			if (type != null)
+			{
+				savedSwaps.removeColorLock(type);
+				t.revertColor(type);
+			}
+		});
 		swapDiffHistory.appendToUndo(s);
 	}
 
@@ -646,14 +742,14 @@ public class SwapManager
 	public void revertSlot(KitType slot)
 	{
 		savedSwaps.removeSlotLock(slot);
-		SwapDiff s = doRevert(slot);
+		SwapDiff s = transact(t -> t.revertSlot(slot));
 		swapDiffHistory.appendToUndo(s);
 	}
 
 	public void revertIcon()
 	{
 		savedSwaps.removeIconLock();
-		SwapDiff s = doRevertIcon();
+		SwapDiff s = transact(SwapTransaction::revertIcon);
 		swapDiffHistory.appendToUndo(s);
 	}
 
@@ -680,19 +776,10 @@ public class SwapManager
 		hoverOver(() -> swapIcon(icon, false));
 	}
 
+	// replaces any hover that hasn't been applied yet, so a fast sweep over many rows only previews the last one
 	private void hoverOver(Supplier<SwapDiff> diffCallable)
 	{
-		clientThread.invokeLater(() -> {
-			SwapDiff swapDiff = diffCallable.get();
-			if (hoverSwapDiff == null)
-			{
-				hoverSwapDiff = swapDiff;
-			}
-			else if (!swapDiff.isBlank())
-			{
-				hoverSwapDiff = swapDiff.mergeOver(hoverSwapDiff);
-			}
-		});
+		pendingHover.set(diffCallable);
 	}
 
 	public void hoverSelectItem(KitType slot, Integer itemId)
@@ -758,74 +845,74 @@ public class SwapManager
 
 	private void hoverSelect(Supplier<SwapDiff> diffSupplier)
 	{
-		clientThread.invokeLater(() -> {
+		// selecting makes any preview still waiting to be applied pointless
+		pendingHover.set(null);
+		clientThread.invokeLater(() -> batchCompositionWrites(() -> {
+			// drop the preview first, so that the diff is against what was there before hovering
+			dropPreview();
 			SwapDiff swapDiff = diffSupplier.get();
 			if (!swapDiff.isBlank())
 			{
-				if (hoverSwapDiff != null)
-				{
-					swapDiff = hoverSwapDiff.mergeOver(swapDiff);
-				}
 				swapDiffHistory.appendToUndo(swapDiff);
-				hoverSwapDiff = null;
 			}
-		});
+		}));
 	}
 
 	public void hoverAway()
 	{
-		clientThread.invokeLater(() -> {
-			if (hoverSwapDiff != null)
+		pendingHover.set(HOVER_AWAY);
+	}
+
+	/**
+	 * applies the latest hover request, replacing the current preview (if any) in a single batch
+	 */
+	private void applyPendingHover()
+	{
+		Supplier<SwapDiff> hover = pendingHover.getAndSet(null);
+		if (hover == null)
+		{
+			return;
+		}
+		batchCompositionWrites(() -> {
+			dropPreview();
+			if (hover == HOVER_AWAY)
+			{
+				// in case swaps changed while previewing. usually there's nothing to do
+				refreshAllSwaps();
+				return;
+			}
+			// the preview only needs to remember what it replaced, not a diff
+			previewing = true;
+			try
 			{
-				restore(hoverSwapDiff, false);
-				hoverSwapDiff = null;
+				hover.get();
+			}
+			finally
+			{
+				previewing = false;
 			}
-			refreshAllSwaps();
 		});
 	}
 
-	// reverts only the given swaps. if removeLocks is true, only removes locks for those slots.
-	private void revertSwaps(List<KitType> slots, boolean removeLocks, boolean preview)
+	/**
+	 * writes back everything the hover preview replaced
+	 */
+	private void dropPreview()
 	{
-		if (removeLocks)
+		if (previewOverlay.isEmpty())
 		{
-			slots.forEach(slot -> savedSwaps.removeSlotLock(slot));
-			savedSwaps.removeIconLock();
+			return;
 		}
-		SwapMode mode = preview ? SwapMode.PREVIEW : SwapMode.REVERT;
-		JawIcon icon = null;
-		if (!savedSwaps.isIconLocked())
+		Player player = client.getLocalPlayer();
+		PlayerComposition composition = player != null ? player.getPlayerComposition() : null;
+		if (composition == null)
 		{
-			icon = JawIcon.NOTHING;
+			previewOverlay.clear();
+			return;
 		}
-		Map<KitType, Integer> equipIdsToRevert = slots.stream()
-			.filter(slot -> !savedSwaps.isSlotLocked(slot))
-			.collect(Collectors.toMap(slot -> slot, slot -> {
-				Integer itemId = inventoryItemId(slot);
-				if (itemId != null && itemId != 0)
-				{
-					return itemId + ITEM_OFFSET;
-				}
-				return savedSwaps.getRealKit(slot, gender) + KIT_OFFSET;
-			}));
-		SwapDiff kitsDiff = CompoundSwap.fromMap(equipIdsToRevert, icon).stream()
-			.map(c -> this.swap(c, false, (s) -> mode, mode))
-			.reduce(SwapDiff::mergeOver)
-			.orElse(SwapDiff.blank());
-		SwapDiff colorsDiff = Arrays.stream(ColorType.values())
-			.filter(type -> !savedSwaps.isColorLocked(type))
-			.map(type -> {
-				Integer colorId = savedSwaps.getRealColor(type);
-				return colorId != null ? swap(type, colorId, mode) : SwapDiff.blank();
-			})
-			.reduce(SwapDiff::mergeOver)
-			.orElse(SwapDiff.blank());
-		SwapDiff totalDiff = kitsDiff
-			.mergeOver(colorsDiff);
-		if (mode == SwapMode.REVERT)
+		if (previewOverlay.restore(composition, player))
 		{
-			swapDiffHistory.appendToUndo(totalDiff);
-			savedSwaps.clearSwapped();
+			rehash(composition);
 		}
 	}
 
@@ -836,7 +923,32 @@ public class SwapManager
 	 */
 	public void revertSwaps(boolean removeLocks, boolean preview)
 	{
-		revertSwaps(Arrays.asList(KitType.values()), removeLocks, preview);
+		if (removeLocks)
+		{
+			Arrays.stream(KitType.values()).forEach(savedSwaps::removeSlotLock);
+			savedSwaps.removeIconLock();
+		}
+		SwapDiff totalDiff = transact(t -> {
+			if (preview)
+			{
+				t.previewReverts();
+			}
+			Arrays.stream(KitType.values())
+				.filter(slot -> !savedSwaps.isSlotLocked(slot))
+				.forEach(t::revertSlot);
+			Arrays.stream(ColorType.values())
+				.filter(type -> !savedSwaps.isColorLocked(type))
+				.forEach(t::revertColor);
+			if (!savedSwaps.isIconLocked())
+			{
+				t.revertIcon();
+			}
+		});
+		if (!preview)
+		{
+			swapDiffHistory.appendToUndo(totalDiff);
+			savedSwaps.clearSwapped();
+		}
 	}
 
 	@Nullable
@@ -915,6 +1027,130 @@ public class SwapManager
 		}
 	}
 
+	/**
+	 * Plans outfits for the unlocked slots in parallel without applying any of them, saving each batch as numbered
+	 * outfit files in a new folder under the outfits dir as soon as it's planned. Locked swaps are included as they are. Base models aren't
+	 * randomized, since those depend on what's actually worn when applied.
+	 * Can only be called from the client thread.
+	 */
+	public void generateOutfits(int count)
+	{
+		ShuffleContext context = shuffleContext(null);
+		Map<KitType, Integer> lockedItems = new HashMap<>();
+		Map<KitType, Integer> lockedKits = new HashMap<>();
+		for (KitType slot : KitType.values())
+		{
+			if (savedSwaps.isItemLocked(slot) && savedSwaps.containsItem(slot))
+			{
+				lockedItems.put(slot, savedSwaps.getItem(slot));
+			}
+			Integer kitId = savedSwaps.getKit(slot);
+			if (savedSwaps.isKitLocked(slot) && kitId != null)
+			{
+				lockedKits.put(slot, kitId);
+			}
+		}
+		Map<ColorType, Integer> lockedColors = Arrays.stream(ColorType.values())
+			.filter(t -> savedSwaps.isColorLocked(t) && savedSwaps.containsColor(t))
+			.collect(Collectors.toMap(t -> t, savedSwaps::getColor));
+		JawIcon lockedIcon = savedSwaps.isIconLocked() && savedSwaps.containsIcon() ?
+			savedSwaps.getSwappedIcon() : null;
+		String folderName = "generated-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+		Function<ShufflePlan, List<String>> toLines = plan -> {
+			Map<KitType, Integer> items = new HashMap<>(plan.getItems());
+			items.putAll(lockedItems);
+			Map<ColorType, Integer> colors = new HashMap<>(plan.getColors());
+			colors.putAll(lockedColors);
+			return stringifySwaps(items, lockedKits, colors, lockedIcon != null ? lockedIcon : plan.getIcon());
+		};
+		// sampling tables are built on the executor before any outfits are planned
+		executor.submit(() -> {
+			shufflePlanner.prepare(context);
+			File dir = createFolder(FashionscapePlugin.OUTFITS_DIR, folderName);
+			if (dir == null)
+			{
+				log.warn("could not create folder {} in {}", folderName, FashionscapePlugin.OUTFITS_DIR);
+				clientThread.invokeLater(() -> sendHighlightedMessage("Could not create folder " + folderName));
+				return;
+			}
+			generateBatch(context, dir, count, 0, new AtomicInteger(), toLines);
+		});
+	}
+
+	/**
+	 * creates a new folder, suffixing the name with -2, -3, ... if it's already taken (e.g. by another generation in
+	 * the same second). Returns null if it couldn't be created
+	 */
+	@Nullable
+	private static File createFolder(File parent, String name)
+	{
+		File dir = new File(parent, name);
+		for (int suffix = 2; !dir.mkdirs(); suffix++)
+		{
+			if (!dir.exists())
+			{
+				return null;
+			}
+			dir = new File(parent, name + "-" + suffix);
+		}
+		return dir;
+	}
+
+	/**
+	 * plans a batch of outfits on the fork-join pool (which the parallel stream also uses, to keep the plugin executor
+	 * free), resolves their names on the client thread, writes them out on the executor, then moves on to the next
+	 * batch. files are numbered, since random seeds can repeat
+	 */
+	private void generateBatch(ShuffleContext context, File dir, int count, int from, AtomicInteger written,
+							   Function<ShufflePlan, List<String>> toLines)
+	{
+		if (from >= count)
+		{
+			clientThread.invokeLater(() ->
+				sendHighlightedMessage("Generated " + written.get() + " outfits in " + dir.getName()));
+			return;
+		}
+		int to = Math.min(from + GENERATE_BATCH_SIZE, count);
+		ForkJoinPool.commonPool().execute(() -> {
+			List<ShufflePlan> plans;
+			try
+			{
+				plans = IntStream.range(from, to)
+					.parallel()
+					.mapToObj(i -> shufflePlanner.plan(context, ShufflePlanner.randomSeed(), true))
+					.collect(Collectors.toList());
+			}
+			catch (Exception e)
+			{
+				log.warn("error generating outfits", e);
+				clientThread.invokeLater(() ->
+					sendHighlightedMessage("Generated " + written.get() + " outfits in " + dir.getName()));
+				return;
+			}
+			clientThread.invokeLater(() -> {
+				List<List<String>> files = plans.stream().map(toLines).collect(Collectors.toList());
+				executor.submit(() -> {
+					String nameFormat = "outfit-%0" + String.valueOf(count).length() + "d.txt";
+					for (int i = 0; i < files.size(); i++)
+					{
+						String name = String.format(nameFormat, from + i + 1);
+						try (PrintWriter out = new PrintWriter(new BufferedWriter(
+							new FileWriter(new File(dir, name)))))
+						{
+							files.get(i).forEach(out::println);
+							written.incrementAndGet();
+						}
+						catch (IOException e)
+						{
+							log.warn("could not write generated outfit {}", name, e);
+						}
+					}
+					generateBatch(context, dir, count, to, written, toLines);
+				});
+			});
+		});
+	}
+
 	public void exportSwaps(File selected)
 	{
 		clientThread.invokeLater(() -> {
@@ -1070,236 +1306,213 @@ public class SwapManager
 	 */
 	public void shuffle()
 	{
-		final Random r = new Random();
-		RandomizerIntelligence intelligence = config.randomizerIntelligence();
-		int size = intelligence.getDepth();
-		if (size > 1)
+		shuffle(null, null);
+	}
+
+	/**
+	 * Randomizes items/kits/colors in unlocked slots. With the same seed, intelligence, harmony, time budget, locks
+	 * and item catalog, the result is always the same. If none is given, random seeds are tried until the outfit
+	 * avoids recently applied items; random shuffles with timed/optimized intelligence may be cut short by the time
+	 * budget, and then can't be reproduced.
+	 * Outfits are planned on the executor (unless one is already prefetched), so the outfit may only be applied on a
+	 * later client tick. Does nothing while another shuffle is still being planned.
+	 * Can only be called from the client thread.
+	 *
+	 * @param onApplied called on the client thread once the outfit has been applied, with the seed that reproduces
+	 *                  it (null if there is none)
+	 */
+	public void shuffle(@Nullable Long seed, @Nullable Consumer<Long> onApplied)
+	{
+		ShuffleContext context = shuffleContext(null);
+		ShufflePlan plan = seed == null ? shufflePlanner.poll(context) : null;
+		if (plan != null)
 		{
-			Map<KitType, Integer> lockedItems = Arrays.stream(KitType.values())
-				.filter(s -> savedSwaps.isItemLocked(s) && savedSwaps.containsItem(s))
-				.collect(Collectors.toMap(s -> s, savedSwaps::getItem));
-			if (savedSwaps.isIconLocked() && savedSwaps.containsIcon())
-			{
-				Integer iconItemId = JawKit.NO_JAW.getIconItemId(savedSwaps.getSwappedIcon());
-				if (iconItemId != null)
-				{
-					lockedItems.put(KitType.JAW, iconItemId);
-				}
-			}
-			Map<ColorType, Colorable> lockedColors = swappedColorsMap().entrySet().stream()
-				.filter(e -> savedSwaps.isColorLocked(e.getKey()) && savedSwaps.containsColor(e.getKey()))
-				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-			colorScorer.setPlayerInfo(lockedItems, lockedColors);
-		}
-		Map<KitType, Boolean> itemSlotsToRevert = Arrays.stream(KitType.values())
-			.collect(Collectors.toMap(slot -> slot, savedSwaps::isItemLocked));
-
-		// pre-fill slots that will be skipped with -1 as a placeholder
-		Map<KitType, Integer> newSwaps = Arrays.stream(KitType.values())
-			.filter(itemSlotsToRevert::get)
-			.collect(Collectors.toMap(s -> s, s -> -1));
-		Set<Integer> skips = FashionscapePlugin.getItemIdsToExclude(config);
-		List<Candidate> candidates = new ArrayList<>(size);
-		List<Integer> randomOrder = IntStream.range(0, client.getItemCount()).boxed().collect(Collectors.toList());
-		Collections.shuffle(randomOrder);
-		Iterator<Integer> randomIterator = randomOrder.iterator();
-		while (newSwaps.size() < KitType.values().length && randomIterator.hasNext())
-		{
-			Integer i = randomIterator.next();
-			int canonical = itemManager.canonicalize(i);
-			if (skips.contains(canonical))
-			{
-				continue;
-			}
-			ItemComposition itemComposition = itemManager.getItemComposition(canonical);
-			int itemId = itemComposition.getId();
-			KitType slot = slotForId(slotIdFor(itemComposition));
-			if (slot != null && !newSwaps.containsKey(slot))
-			{
-				// Don't equip a 2h weapon if we already have a shield
-				if (slot == KitType.WEAPON)
-				{
-					ItemEquipmentStats stats = equipmentStatsFor(itemId);
-					if (stats != null && stats.isTwoHanded() && newSwaps.get(KitType.SHIELD) != null)
-					{
-						continue;
-					}
-				}
-				// Don't equip a shield if we already have a 2h weapon (mark shield as removed instead)
-				else if (slot == KitType.SHIELD)
-				{
-					Integer weaponItemId = newSwaps.get(KitType.WEAPON);
-					if (weaponItemId != null)
-					{
-						ItemEquipmentStats stats = equipmentStatsFor(weaponItemId);
-						if (stats != null && stats.isTwoHanded())
-						{
-							newSwaps.put(KitType.SHIELD, -1);
-							continue;
-						}
-					}
-				}
-				else if (slot == KitType.HEAD)
-				{
-					// Don't equip a helm if it hides hair and hair is locked
-					if (!ItemInteractions.HAIR_HELMS.contains(itemId) && savedSwaps.isKitLocked(KitType.HAIR))
-					{
-						continue;
-					}
-					// Don't equip a helm if it hides jaw and jaw is locked
-					if (ItemInteractions.NO_JAW_HELMS.contains(itemId) && savedSwaps.isKitLocked(KitType.JAW))
-					{
-						continue;
-					}
-				}
-				else if (slot == KitType.TORSO)
-				{
-					// Don't equip torso if it hides arms and arms is locked
-					if (!ItemInteractions.ARMS_TORSOS.contains(itemId) && savedSwaps.isKitLocked(KitType.ARMS))
-					{
-						continue;
-					}
-				}
-				candidates.add(new Candidate(itemComposition.getId(), slot));
-			}
+			applyShuffle(plan, onApplied);
+		}
+		else
+		{
+			planThenApply(context, seed, p -> applyShuffle(p, onApplied));
+		}
+	}
 
-			if (!candidates.isEmpty() && candidates.size() >= size)
-			{
-				Candidate best;
-				if (size > 1)
-				{
-					best = candidates.stream()
-						.max(Comparator.comparingDouble(c -> colorScorer.score(c.itemId, c.slot)))
-						.get();
-					colorScorer.addPlayerInfo(best.slot, best.itemId);
-				}
-				else
-				{
-					best = candidates.get(0);
-				}
-				newSwaps.put(best.slot, best.itemId);
-				candidates.clear();
-			}
+	private void applyShuffle(ShufflePlan plan, @Nullable Consumer<Long> onApplied)
+	{
+		lastShuffleSeed = plan.isReplayable() ? ShufflePlanner.replaySeed(plan) : null;
+		Map<KitType, Integer> newSwaps = plan.getItems();
+
+		SwapDiff totalDiff = transact(t -> {
+			// swap items now before moving on to kits
+			newSwaps.forEach(t::putItem);
+			t.flush();
+
+			// base models are part of the plan rather than decided by what's really equipped, so seeds reproduce
+			plan.getKits().forEach(t::putKit);
+			t.putIcon(plan.getIcon());
+			plan.getColors().forEach(t::putColor);
+		});
+
+		swapDiffHistory.appendToUndo(totalDiff);
+		recentItems.recordAll(newSwaps);
+		// locks may have been changed by the swaps, so take a fresh snapshot for the next outfits
+		shufflePlanner.prefetch(shuffleContext(null), recentItems.snapshot());
+		if (onApplied != null)
+		{
+			onApplied.accept(lastShuffleSeed);
 		}
-		// slots filled with -1 were placeholders that need to be removed
-		List<KitType> removes = newSwaps.entrySet().stream()
-			.filter(e -> e.getValue() < 0)
-			.map(Map.Entry::getKey)
-			.collect(Collectors.toList());
-		removes.forEach(newSwaps::remove);
+	}
 
-		// shuffle colors
-		Map<ColorType, Integer> newColors = new HashMap<>();
-		List<ColorType> allColorTypes = Arrays.asList(ColorType.values().clone());
-		Collections.shuffle(allColorTypes);
-		for (ColorType type : allColorTypes)
+	/**
+	 * plans an outfit on the executor, then applies it on the client thread (if still logged in). Locks that change
+	 * in between are still respected, since locked swaps can't be overwritten.
+	 * Without a seed, random seeds are drawn until the outfit avoids recent items, and the time budget applies. A
+	 * given seed always gets the full amount of work, so that it reproduces.
+	 */
+	private void planThenApply(ShuffleContext context, @Nullable Long seed, Consumer<ShufflePlan> apply)
+	{
+		if (planningShuffle)
 		{
-			if (savedSwaps.isColorLocked(type))
+			return;
+		}
+		planningShuffle = true;
+		executor.submit(() -> {
+			ShufflePlan plan = null;
+			try
 			{
-				continue;
+				plan = seed != null ? shufflePlanner.plan(context, seed, false) :
+					shufflePlanner.planNovel(context, recentItems.snapshot(), true);
 			}
-			List<Colorable> colorables = Arrays.asList(type.getColorables().clone());
-			if (colorables.isEmpty())
+			catch (Exception e)
 			{
-				continue;
+				log.warn("error planning randomizer outfit", e);
 			}
-			Collections.shuffle(colorables);
-			int limit;
-			switch (intelligence)
-			{
-				case LOW:
-					limit = Math.max(1, colorables.size() / 4);
-					break;
-				case MODERATE:
-					limit = Math.max(1, colorables.size() / 2);
-					break;
-				case HIGH:
-					limit = colorables.size();
-					break;
-				default:
-					limit = 1;
-			}
-			Colorable best = colorables.stream()
-				.limit(limit)
-				.max(Comparator.comparingDouble(c -> colorScorer.score(c, type)))
-				.orElse(colorables.get(0));
-			colorScorer.addPlayerColor(type, best);
-			newColors.put(type, best.getColorId(type));
+			ShufflePlan finalPlan = plan;
+			clientThread.invokeLater(() -> {
+				planningShuffle = false;
+				if (finalPlan != null && client.getGameState() == GameState.LOGGED_IN)
+				{
+					apply.accept(finalPlan);
+				}
+			});
+		});
+	}
+
+	/**
+	 * starts generating randomizer outfits in the background for the current locks and settings.
+	 * Can only be called from the client thread.
+	 */
+	public void prefetchShuffles()
+	{
+		if (client.getGameState() == GameState.LOGGED_IN)
+		{
+			shufflePlanner.prefetch(shuffleContext(null), recentItems.snapshot());
 		}
+	}
 
-		SwapDiff totalDiff = SwapDiff.blank();
+	/**
+	 * slots that are randomized together with the given slot by {@link #shuffleSlots}
+	 */
+	public Set<KitType> groupSlots(KitType slot)
+	{
+		return CompoundSwap.groupSlots(slot);
+	}
 
-		// convert to equipment ids
-		Map<KitType, Integer> newEquipSwaps = newSwaps.entrySet().stream()
-			.collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue() + ITEM_OFFSET));
+	/**
+	 * Randomizes the items of just one slot, or of every slot in its group (e.g., weapon and shield), leaving the
+	 * rest of the outfit as it is and matching colours against it. Base models and colours aren't changed.
+	 * Can only be called from the client thread.
+	 */
+	public void shuffleSlots(KitType slot, boolean wholeGroup)
+	{
+		Set<KitType> slots = wholeGroup ? CompoundSwap.groupSlots(slot) : Collections.singleton(slot);
+		ShuffleContext context = shuffleContext(slots);
+		if (context.getLockedSlots().containsAll(slots) && !context.isIconShuffled())
+		{
+			return;
+		}
+		// repeated presses for the same group hit the prefetched outfits
+		ShufflePlan plan = shufflePlanner.poll(context);
+		if (plan != null)
+		{
+			applySlotShuffle(plan, slots);
+		}
+		else
+		{
+			planThenApply(context, null, p -> applySlotShuffle(p, slots));
+		}
+	}
 
-		// swap items now before moving on to kits
-		SwapDiff itemsDiff = CompoundSwap.fromMap(newEquipSwaps, null).stream()
-			.map(c -> this.swap(c, SwapMode.SAVE))
-			.reduce(SwapDiff::mergeOver)
-			.orElse(SwapDiff.blank());
-		totalDiff = totalDiff.mergeOver(itemsDiff);
-
-		// See if remaining slots can be kit-swapped
-		if (gender != null && !config.excludeBaseModels())
-		{
-			Map<KitType, Integer> kitSwaps = Arrays.stream(KitType.values())
-				.filter(slot -> !newSwaps.containsKey(slot) && isOpen(slot))
-				.map(slot -> {
-					List<Kit> kits = KIT_TYPE_TO_KITS.getOrDefault(slot, new ArrayList<>()).stream()
-						.filter(k -> k.getKitId(gender) != null)
-						.collect(Collectors.toList());
-					return kits.isEmpty() ? null : kits.get(r.nextInt(kits.size()));
-				})
-				.filter(Objects::nonNull)
-				.collect(Collectors.toMap(Kit::getKitType, k -> k.getKitId(gender)));
-
-			Map<KitType, Integer> kitEquipSwaps = kitSwaps.entrySet().stream()
-				.collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue() + KIT_OFFSET));
-
-			SwapDiff kitsDiff = CompoundSwap.fromMap(kitEquipSwaps, null)
-				.stream()
-				.map(c -> this.swap(c, SwapMode.SAVE))
-				.reduce(SwapDiff::mergeOver)
-				.orElse(SwapDiff.blank());
-
-			totalDiff = totalDiff.mergeOver(kitsDiff);
-		}
-
-		if (!config.excludeNonStandardItems() && !config.excludeMembersItems() && !savedSwaps.isIconLocked())
-		{
-			List<JawIcon> icons = Arrays.asList(JawIcon.values());
-			Collections.shuffle(icons);
-			int limit = icons.size();
-			if (intelligence == RandomizerIntelligence.NONE)
-			{
-				limit = 1;
-			}
-			Map<JawIcon, Double> scores = icons.stream()
-				.limit(limit)
-				.collect(Collectors.toMap(i -> i, i -> {
-					Integer itemId = JawKit.NO_JAW.getIconItemId(i);
-					return itemId != null ? colorScorer.score(itemId, null) : 0;
-				}));
-			// only icon swap if >75% match (if intelligence is > NONE)
-			JawIcon icon = scores.entrySet().stream()
-				.filter(e -> intelligence == RandomizerIntelligence.NONE || e.getValue() > 0.75)
-				.max(Comparator.comparingDouble(Map.Entry::getValue))
-				.map(Map.Entry::getKey)
-				.orElse(JawIcon.NOTHING);
-			SwapDiff iconDiff = swap(CompoundSwap.fromIcon(icon), SwapMode.PREVIEW, SwapMode.SAVE);
-			totalDiff = totalDiff.mergeOver(iconDiff);
-		}
-
-		SwapDiff colorsDiff = newColors.entrySet().stream()
-			.filter(e -> e.getValue() >= 0)
-			.map(e -> swap(e.getKey(), e.getValue(), SwapMode.SAVE))
-			.reduce(SwapDiff::mergeOver)
-			.orElse(SwapDiff.blank());
+	private void applySlotShuffle(ShufflePlan plan, Set<KitType> slots)
+	{
+		SwapDiff totalDiff = transact(t -> {
+			plan.getItems().forEach(t::putItem);
+			t.putIcon(plan.getIcon());
+		});
+		swapDiffHistory.appendToUndo(totalDiff);
+		recentItems.recordAll(plan.getItems());
+		shufflePlanner.prefetch(shuffleContext(slots), recentItems.snapshot());
+	}
 
-		totalDiff = totalDiff.mergeOver(colorsDiff);
+	// snapshot of everything the randomizer needs, so that outfits can be planned off the client thread.
+	// if only some slots are being shuffled, everything else is treated as locked
+	private ShuffleContext shuffleContext(@Nullable Set<KitType> onlySlots)
+	{
+		Predicate<KitType> slotFixed = s -> savedSwaps.isItemLocked(s) || (onlySlots != null && !onlySlots.contains(s));
+		Predicate<ColorType> colorFixed = t -> savedSwaps.isColorLocked(t) || onlySlots != null;
+		boolean iconFixed = savedSwaps.isIconLocked() || (onlySlots != null && !onlySlots.contains(KitType.JAW));
+		Map<KitType, Integer> lockedItems = Arrays.stream(KitType.values())
+			.filter(s -> slotFixed.test(s) && savedSwaps.containsItem(s))
+			.collect(Collectors.toMap(s -> s, savedSwaps::getItem));
+		if (iconFixed && savedSwaps.containsIcon())
+		{
+			Integer iconItemId = JawKit.NO_JAW.getIconItemId(savedSwaps.getSwappedIcon());
+			if (iconItemId != null)
+			{
+				lockedItems.put(KitType.JAW, iconItemId);
+			}
+		}
+		Map<ColorType, Colorable> lockedColors = swappedColorsMap().entrySet().stream()
+			.filter(e -> colorFixed.test(e.getKey()) && savedSwaps.containsColor(e.getKey()))
+			.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+		Set<KitType> lockedSlots = Arrays.stream(KitType.values())
+			.filter(slotFixed)
+			.collect(Collectors.toSet());
+		Set<ColorType> lockedColorTypes = Arrays.stream(ColorType.values())
+			.filter(colorFixed)
+			.collect(Collectors.toSet());
+		boolean iconShuffled = !config.excludeNonStandardItems() && !config.excludeMembersItems() && !iconFixed;
+		// single slots and groups only shuffle items
+		Set<KitType> kitSlots = gender != null && !config.excludeBaseModels() && onlySlots == null ?
+			Arrays.stream(KitType.values())
+				.filter(s -> !savedSwaps.isKitLocked(s))
+				.collect(Collectors.toSet()) :
+			Collections.emptySet();
+		return new ShuffleContext(
+			lockedSlots,
+			lockedColorTypes,
+			savedSwaps.isKitLocked(KitType.HAIR),
+			savedSwaps.isKitLocked(KitType.JAW),
+			savedSwaps.isKitLocked(KitType.ARMS),
+			iconShuffled,
+			lockedItems,
+			lockedColors,
+			config.randomizerIntelligence(),
+			config.randomizerHarmony(),
+			config.randomizerTimeBudget(),
+			gender,
+			kitSlots,
+			onlySlots,
+			candidatePools.getPools()
+		);
+	}
 
-		swapDiffHistory.appendToUndo(totalDiff);
+	/**
+	 * forces randomizer item pools to be rebuilt, e.g. when exclusion settings change
+	 */
+	public void invalidateCandidatePools()
+	{
+		candidatePools.invalidate();
+		slotRules.rebuild();
+		shufflePlanner.invalidate();
 	}
 
 	// this should only be called from the client thread
@@ -1312,12 +1525,7 @@ public class SwapManager
 		int equipmentId = itemId + ITEM_OFFSET;
 		SwapMode swapMode = save ? SwapMode.SAVE : SwapMode.PREVIEW;
 		SwapMode iconSwapMode = saveIcon ? SwapMode.SAVE : SwapMode.PREVIEW;
-		SwapDiff swapDiff = swap(CompoundSwap.single(slot, equipmentId), swapMode, iconSwapMode);
-		if (hoverSwapDiff != null)
-		{
-			swapDiff = swapDiff.mergeOver(hoverSwapDiff);
-		}
-		return swapDiff;
+		return swap(CompoundSwap.single(slot, equipmentId), swapMode, iconSwapMode);
 	}
 
 	// this should only be called from the client thread
@@ -1329,12 +1537,7 @@ public class SwapManager
 		}
 		int equipmentId = kitId + KIT_OFFSET;
 		SwapMode swapMode = save ? SwapMode.SAVE : SwapMode.PREVIEW;
-		SwapDiff swapDiff = swap(CompoundSwap.single(slot, equipmentId), swapMode, SwapMode.PREVIEW);
-		if (hoverSwapDiff != null)
-		{
-			swapDiff = swapDiff.mergeOver(hoverSwapDiff);
-		}
-		return swapDiff;
+		return swap(CompoundSwap.single(slot, equipmentId), swapMode, SwapMode.PREVIEW);
 	}
 
 	// this should only be called from the client thread
@@ -1345,12 +1548,7 @@ public class SwapManager
 			return SwapDiff.blank();
 		}
 		SwapMode swapMode = save ? SwapMode.SAVE : SwapMode.PREVIEW;
-		SwapDiff swapDiff = swap(CompoundSwap.fromIcon(icon), SwapMode.PREVIEW, swapMode);
-		if (hoverSwapDiff != null)
-		{
-			swapDiff = swapDiff.mergeOver(hoverSwapDiff);
-		}
-		return swapDiff;
+		return swap(CompoundSwap.fromIcon(icon), SwapMode.PREVIEW, swapMode);
 	}
 
 	// this should only be called from the client thread
@@ -1361,12 +1559,7 @@ public class SwapManager
 			return SwapDiff.blank();
 		}
 		SwapMode swapMode = save ? SwapMode.SAVE : SwapMode.PREVIEW;
-		SwapDiff swapDiff = swap(type, colorId, swapMode);
-		if (hoverSwapDiff != null)
-		{
-			swapDiff = swapDiff.mergeOver(hoverSwapDiff);
-		}
-		return swapDiff;
+		return swap(type, colorId, swapMode);
 	}
 
 	/**
@@ -1391,8 +1584,7 @@ public class SwapManager
 		try
 		{
 			int oldColorId = setColorId(composition, type, colorId);
-			Map<ColorType, SwapDiff.Change> changes = new HashMap<>();
-			changes.put(type, new SwapDiff.Change(oldColorId, savedSwaps.containsColor(type)));
+			SwapDiff.Change change = new SwapDiff.Change(oldColorId, savedSwaps.containsColor(type));
 			switch (swapMode)
 			{
 				case SAVE:
@@ -1404,7 +1596,7 @@ public class SwapManager
 				case PREVIEW:
 					break;
 			}
-			return new SwapDiff(new HashMap<>(), changes, null, null);
+			return SwapDiff.builder().color(type, change).build();
 		}
 		catch (Exception e)
 		{
@@ -1465,13 +1657,10 @@ public class SwapManager
 	{
 		Map<SwapDiff.Change.Type, SwapDiff.Change> results = swap(slot, equipmentId, swapMode, SwapMode.PREVIEW,
 			allowDisabledSwaps);
-		Map<KitType, SwapDiff.Change> changes = new HashMap<>();
-		SwapDiff.Change iconChange = results.get(SwapDiff.Change.Type.ICON);
-		if (results.containsKey(SwapDiff.Change.Type.EQUIPMENT))
-		{
-			changes.put(slot, results.get(SwapDiff.Change.Type.EQUIPMENT));
-		}
-		return new SwapDiff(changes, new HashMap<>(), iconChange, null);
+		return SwapDiff.builder()
+			.slot(slot, results.get(SwapDiff.Change.Type.EQUIPMENT))
+			.icon(results.get(SwapDiff.Change.Type.ICON))
+			.build();
 	}
 
 	/**
@@ -1506,9 +1695,9 @@ public class SwapManager
 		Function<Integer, Boolean> isJawlessIcon = (equipId) ->
 			equipId >= ITEM_OFFSET && JawKit.isNoJawIcon(equipId - ITEM_OFFSET);
 		Function<Integer, Boolean> headAllowsHair = (equipId) ->
-			equipId < ITEM_OFFSET || ItemInteractions.HAIR_HELMS.contains(equipId - ITEM_OFFSET);
+			equipId < ITEM_OFFSET || slotRules.showsHair(equipId - ITEM_OFFSET);
 		Function<Integer, Boolean> headAllowsJaw = (equipId) ->
-			equipId < ITEM_OFFSET || !ItemInteractions.NO_JAW_HELMS.contains(equipId - ITEM_OFFSET);
+			equipId < ITEM_OFFSET || !slotRules.hidesJaw(equipId - ITEM_OFFSET);
 
 		int currentHeadEquipId = equipmentIdInSlot(KitType.HEAD);
 
@@ -1602,8 +1791,7 @@ public class SwapManager
 			finalJawId = !savedSwaps.isKitLocked(KitType.JAW) ? potentialJawId : null;
 		}
 
-		Map<KitType, SwapDiff.Change> changes = new HashMap<>();
-		final SwapDiff.Change[] iconChange = {null};
+		SwapDiff.Builder changes = SwapDiff.builder();
 
 		// edge cases:
 		// if not changing hair but hair can be shown, make sure that at least something is displayed there
@@ -1622,10 +1810,7 @@ public class SwapManager
 				int revertHairId = savedSwaps.getRealKit(KitType.HAIR, gender) + KIT_OFFSET;
 				Map<SwapDiff.Change.Type, SwapDiff.Change> result = swap(KitType.HAIR, revertHairId, SwapMode.REVERT,
 					SwapMode.PREVIEW, allowDisabledSwaps);
-				if (result.containsKey(SwapDiff.Change.Type.EQUIPMENT))
-				{
-					changes.put(KitType.HAIR, result.get(SwapDiff.Change.Type.EQUIPMENT));
-				}
+				changes.slot(KitType.HAIR, result.get(SwapDiff.Change.Type.EQUIPMENT));
 			}
 		}
 
@@ -1647,10 +1832,7 @@ public class SwapManager
 				int fallbackJawId = combineJawIcon(realKitId + KIT_OFFSET, adjustedIcon);
 				Map<SwapDiff.Change.Type, SwapDiff.Change> result = swap(KitType.JAW, fallbackJawId, SwapMode.REVERT,
 					SwapMode.PREVIEW, allowDisabledSwaps);
-				if (result.containsKey(SwapDiff.Change.Type.EQUIPMENT))
-				{
-					changes.put(KitType.JAW, result.get(SwapDiff.Change.Type.EQUIPMENT));
-				}
+				changes.slot(KitType.JAW, result.get(SwapDiff.Change.Type.EQUIPMENT));
 			}
 		}
 
@@ -1659,20 +1841,14 @@ public class SwapManager
 			{
 				Map<SwapDiff.Change.Type, SwapDiff.Change> result = swap(slot, equipId, swapModeProvider.apply(slot),
 					iconSwapMode, allowDisabledSwaps);
-				if (result.containsKey(SwapDiff.Change.Type.EQUIPMENT))
-				{
-					changes.put(slot, result.get(SwapDiff.Change.Type.EQUIPMENT));
-				}
-				if (result.containsKey(SwapDiff.Change.Type.ICON))
-				{
-					iconChange[0] = result.get(SwapDiff.Change.Type.ICON);
-				}
+				changes.slot(slot, result.get(SwapDiff.Change.Type.EQUIPMENT));
+				changes.icon(result.get(SwapDiff.Change.Type.ICON));
 			}
 		};
 		attemptChange.accept(KitType.HEAD, finalHeadId);
 		attemptChange.accept(KitType.HAIR, finalHairId);
 		attemptChange.accept(KitType.JAW, finalJawId);
-		return new SwapDiff(changes, new HashMap<>(), iconChange[0], null);
+		return changes.build();
 	}
 
 	/**
@@ -1700,9 +1876,9 @@ public class SwapManager
 		Integer finalArmsId;
 
 		Function<Integer, Boolean> torsoAllowsArms = (equipId) ->
-			equipId < ITEM_OFFSET || ItemInteractions.ARMS_TORSOS.contains(equipId - ITEM_OFFSET);
+			equipId < ITEM_OFFSET || slotRules.showsArms(equipId - ITEM_OFFSET);
 
-		Map<KitType, SwapDiff.Change> changes = new HashMap<>();
+		SwapDiff.Builder changes = SwapDiff.builder();
 
 		int currentTorsoEquipId = equipmentIdInSlot(KitType.TORSO);
 		if (savedSwaps.isKitLocked(KitType.TORSO) ||
@@ -1731,10 +1907,7 @@ public class SwapManager
 				int revertTorsoId = savedSwaps.getRealKit(KitType.TORSO, gender) + KIT_OFFSET;
 				Map<SwapDiff.Change.Type, SwapDiff.Change> result = swap(KitType.TORSO, revertTorsoId, SwapMode.REVERT,
 					SwapMode.PREVIEW, allowDisabledSwaps);
-				if (result.containsKey(SwapDiff.Change.Type.EQUIPMENT))
-				{
-					changes.put(KitType.TORSO, result.get(SwapDiff.Change.Type.EQUIPMENT));
-				}
+				changes.slot(KitType.TORSO, result.get(SwapDiff.Change.Type.EQUIPMENT));
 			}
 		}
 		else
@@ -1763,10 +1936,7 @@ public class SwapManager
 				int revertArmsId = savedSwaps.getRealKit(KitType.ARMS, gender) + KIT_OFFSET;
 				Map<SwapDiff.Change.Type, SwapDiff.Change> result = swap(KitType.ARMS, revertArmsId, SwapMode.REVERT,
 					SwapMode.PREVIEW, allowDisabledSwaps);
-				if (result.containsKey(SwapDiff.Change.Type.EQUIPMENT))
-				{
-					changes.put(KitType.ARMS, result.get(SwapDiff.Change.Type.EQUIPMENT));
-				}
+				changes.slot(KitType.ARMS, result.get(SwapDiff.Change.Type.EQUIPMENT));
 			}
 		}
 
@@ -1775,15 +1945,12 @@ public class SwapManager
 			{
 				Map<SwapDiff.Change.Type, SwapDiff.Change> result = swap(slot, equipId, swapModeProvider.apply(slot),
 					SwapMode.PREVIEW, allowDisabledSwaps);
-				if (result.containsKey(SwapDiff.Change.Type.EQUIPMENT))
-				{
-					changes.put(slot, result.get(SwapDiff.Change.Type.EQUIPMENT));
-				}
+				changes.slot(slot, result.get(SwapDiff.Change.Type.EQUIPMENT));
 			}
 		};
 		attemptChange.accept(KitType.TORSO, finalTorsoId);
 		attemptChange.accept(KitType.ARMS, finalArmsId);
-		return new SwapDiff(changes, new HashMap<>(), null, null);
+		return changes.build();
 	}
 
 	/**
@@ -1809,14 +1976,8 @@ public class SwapManager
 		Integer finalShieldId;
 		Integer finalAnimId = null;
 
-		Function<Integer, Boolean> weaponForbidsShields = (equipId) -> {
-			if (equipId >= ITEM_OFFSET)
-			{
-				ItemEquipmentStats stats = equipmentStatsFor(equipId - ITEM_OFFSET);
-				return stats != null && stats.isTwoHanded();
-			}
-			return false;
-		};
+		Function<Integer, Boolean> weaponForbidsShields = (equipId) ->
+			equipId >= ITEM_OFFSET && slotRules.isTwoHanded(equipId - ITEM_OFFSET);
 
 		if (weaponEquipId == null || savedSwaps.isItemLocked(KitType.WEAPON))
 		{
@@ -1844,20 +2005,17 @@ public class SwapManager
 				null :
 				weaponEquipId;
 			finalAnimId = finalWeaponId != null ?
-				ItemInteractions.WEAPON_TO_IDLE.getOrDefault(weaponEquipId - ITEM_OFFSET, IdleAnimationID.DEFAULT) :
+				Integer.valueOf(ItemInteractions.idleAnimationFor(weaponEquipId - ITEM_OFFSET)) :
 				null;
 		}
 
-		Map<KitType, SwapDiff.Change> changes = new HashMap<>();
+		SwapDiff.Builder changes = SwapDiff.builder();
 		BiConsumer<KitType, Integer> attemptChange = (slot, equipId) -> {
 			if (equipId != null && equipId >= 0)
 			{
 				Map<SwapDiff.Change.Type, SwapDiff.Change> results = swap(slot, equipId, swapModeProvider.apply(slot),
 					SwapMode.PREVIEW, allowDisabledSwaps);
-				if (results.containsKey(SwapDiff.Change.Type.EQUIPMENT))
-				{
-					changes.put(slot, results.get(SwapDiff.Change.Type.EQUIPMENT));
-				}
+				changes.slot(slot, results.get(SwapDiff.Change.Type.EQUIPMENT));
 			}
 		};
 		attemptChange.accept(KitType.WEAPON, finalWeaponId);
@@ -1876,7 +2034,7 @@ public class SwapManager
 				}
 			}
 		}
-		return new SwapDiff(changes, new HashMap<>(), null, changedAnim);
+		return changes.idleAnimation(changedAnim).build();
 	}
 
 	/**
@@ -2013,11 +2171,21 @@ public class SwapManager
 		int equipmentId,
 		boolean allowDisabledSwaps)
 	{
-		int previousId = composition.getEquipmentIds()[slot.getIndex()];
-		if (allowDisabledSwaps || !disabledSlots.containsKey(slot))
+		int[] equipmentIds = composition.getEquipmentIds();
+		int previousId = equipmentIds[slot.getIndex()];
+		// unchanged slots aren't written, so that the composition isn't needlessly rehashed
+		if (previousId != equipmentId && (allowDisabledSwaps || !disabledSlots.containsKey(slot)))
 		{
-			composition.getEquipmentIds()[slot.getIndex()] = equipmentId;
-			composition.setHash();
+			equipmentIds[slot.getIndex()] = equipmentId;
+			rehash(composition);
+			if (previewing)
+			{
+				previewOverlay.recordEquipment(slot, previousId);
+			}
+			else
+			{
+				previewOverlay.forgetEquipment(slot);
+			}
 		}
 		return previousId;
 	}
@@ -2029,11 +2197,129 @@ public class SwapManager
 	{
 		int[] colors = composition.getColors();
 		int previousId = colors[type.ordinal()];
-		colors[type.ordinal()] = colorId;
-		composition.setHash();
+		if (previousId != colorId)
+		{
+			colors[type.ordinal()] = colorId;
+			rehash(composition);
+			if (previewing)
+			{
+				previewOverlay.recordColor(type, previousId);
+			}
+			else
+			{
+				previewOverlay.forgetColor(type);
+			}
+		}
 		return previousId;
 	}
 
+	/**
+	 * Stages changes into a transaction and applies them together. The player's model is rebuilt once and config is
+	 * saved once, after everything has been applied.
+	 * Can only be called from the client thread.
+	 *
+	 * @return the combined diff of everything applied
+	 */
+	SwapDiff transact(Consumer<SwapTransaction> changes)
+	{
+		SwapTransaction transaction = new SwapTransaction(this);
+		savedSwaps.beginBatch();
+		try
+		{
+			return batchCompositionWrites(() -> {
+				changes.accept(transaction);
+				return transaction.commit();
+			});
+		}
+		finally
+		{
+			savedSwaps.endBatch();
+		}
+	}
+
+	/**
+	 * Applies staged reverts back to what the player actually wears. With SwapMode.PREVIEW, saved swaps are kept.
+	 */
+	SwapDiff applyReverts(Set<KitType> slots, Set<ColorType> types, boolean icon, SwapMode mode)
+	{
+		SwapDiff diff = icon ? doRevertIcon(mode) : SwapDiff.blank();
+		for (KitType slot : slots)
+		{
+			diff = diff.mergeOver(doRevert(slot, mode));
+		}
+		for (ColorType type : types)
+		{
+			diff = diff.mergeOver(doRevert(type, mode));
+		}
+		return diff;
+	}
+
+	/**
+	 * Applies staged equipment, icon and colors, saving them. Kits are matched to the player's gender, slots that
+	 * depend on each other (e.g., head and hair) are swapped together, and locked or invalid colors are skipped.
+	 */
+	SwapDiff applyStaged(Map<KitType, Integer> equipIds, @Nullable JawIcon icon, Map<ColorType, Integer> colorIds)
+	{
+		SwapDiff equipsDiff = CompoundSwap.fromMap(sanitize(equipIds), icon).stream()
+			.map(c -> this.swap(c, SwapMode.SAVE))
+			.reduce(SwapDiff::mergeOver)
+			.orElse(SwapDiff.blank());
+		SwapDiff colorsDiff = colorIds.entrySet().stream()
+			.filter(e -> e.getValue() >= 0 && !savedSwaps.isColorLocked(e.getKey()))
+			.map(e -> swap(e.getKey(), e.getValue(), SwapMode.SAVE))
+			.reduce(SwapDiff::mergeOver)
+			.orElse(SwapDiff.blank());
+		return equipsDiff.mergeOver(colorsDiff);
+	}
+
+	/**
+	 * Runs a group of swaps so that the player's composition is only rehashed (and its model rebuilt) once, after
+	 * all of them, instead of after every slot. Batches can be nested; the outermost one rehashes.
+	 * Can only be called from the client thread.
+	 */
+	private <T> T batchCompositionWrites(Supplier<T> writes)
+	{
+		compositionBatchDepth++;
+		try
+		{
+			return writes.get();
+		}
+		finally
+		{
+			if (--compositionBatchDepth == 0 && pendingHashComposition != null)
+			{
+				PlayerComposition composition = pendingHashComposition;
+				pendingHashComposition = null;
+				composition.setHash();
+			}
+		}
+	}
+
+	private void batchCompositionWrites(Runnable writes)
+	{
+		batchCompositionWrites(() -> {
+			writes.run();
+			return null;
+		});
+	}
+
+	private void rehash(PlayerComposition composition)
+	{
+		if (compositionBatchDepth > 0)
+		{
+			if (pendingHashComposition != null && pendingHashComposition != composition)
+			{
+				// the player's composition was replaced mid-batch
+				pendingHashComposition.setHash();
+			}
+			pendingHashComposition = composition;
+		}
+		else
+		{
+			composition.setHash();
+		}
+	}
+
 	/**
 	 * Sets idle animation id for current player and returns previous idle animation.
 	 * If allowDisabledSwaps is false or the weapon slot is disabled, no actual anim change occurs.
@@ -2044,6 +2330,14 @@ public class SwapManager
 		if (allowDisabledSwaps || !disabledSlots.containsKey(KitType.WEAPON))
 		{
 			player.setIdlePoseAnimation(animationId);
+			if (previewing)
+			{
+				previewOverlay.recordIdleAnimation(previousId);
+			}
+			else
+			{
+				previewOverlay.forgetIdleAnimation();
+			}
 		}
 		return previousId;
 	}
@@ -2055,29 +2349,34 @@ public class SwapManager
 	 * and the kit will be hidden.
 	 */
 	private SwapDiff doRevert(KitType slot)
+	{
+		return doRevert(slot, SwapMode.REVERT);
+	}
+
+	private SwapDiff doRevert(KitType slot, SwapMode mode)
 	{
 		if (slot == KitType.HAIR)
 		{
 			Integer headItemId = inventoryItemId(KitType.HEAD);
-			if (headItemId != null && headItemId >= 0 && !ItemInteractions.HAIR_HELMS.contains(headItemId))
+			if (headItemId != null && headItemId >= 0 && !slotRules.showsHair(headItemId))
 			{
-				return swap(CompoundSwap.single(KitType.HEAD, headItemId + ITEM_OFFSET), SwapMode.REVERT, SwapMode.PREVIEW);
+				return swap(CompoundSwap.single(KitType.HEAD, headItemId + ITEM_OFFSET), mode, SwapMode.PREVIEW);
 			}
 		}
 		else if (slot == KitType.JAW)
 		{
 			Integer headItemId = inventoryItemId(KitType.HEAD);
-			if (headItemId != null && headItemId >= 0 && ItemInteractions.NO_JAW_HELMS.contains(headItemId))
+			if (headItemId != null && headItemId >= 0 && slotRules.hidesJaw(headItemId))
 			{
-				return swap(CompoundSwap.single(KitType.HEAD, headItemId + ITEM_OFFSET), SwapMode.REVERT, SwapMode.PREVIEW);
+				return swap(CompoundSwap.single(KitType.HEAD, headItemId + ITEM_OFFSET), mode, SwapMode.PREVIEW);
 			}
 		}
 		else if (slot == KitType.ARMS)
 		{
 			Integer torsoItemId = inventoryItemId(KitType.TORSO);
-			if (torsoItemId != null && torsoItemId >= 0 && !ItemInteractions.ARMS_TORSOS.contains(torsoItemId))
+			if (torsoItemId != null && torsoItemId >= 0 && !slotRules.showsArms(torsoItemId))
 			{
-				return swap(CompoundSwap.single(KitType.TORSO, torsoItemId + ITEM_OFFSET), SwapMode.REVERT, SwapMode.PREVIEW);
+				return swap(CompoundSwap.single(KitType.TORSO, torsoItemId + ITEM_OFFSET), mode, SwapMode.PREVIEW);
 			}
 		}
 		Integer originalItemId = inventoryItemId(slot);
@@ -2099,16 +2398,26 @@ public class SwapManager
 		{
 			equipmentId = 0;
 		}
-		return swap(CompoundSwap.single(slot, equipmentId), SwapMode.REVERT, SwapMode.PREVIEW);
+		return swap(CompoundSwap.single(slot, equipmentId), mode, SwapMode.PREVIEW);
 	}
 
 	private SwapDiff doRevert(ColorType type)
+	{
+		return doRevert(type, SwapMode.REVERT);
+	}
+
+	private SwapDiff doRevert(ColorType type, SwapMode mode)
 	{
 		Integer originalColorId = savedSwaps.getRealColor(type);
-		return swap(type, originalColorId, SwapMode.REVERT);
+		return swap(type, originalColorId, mode);
 	}
 
 	private SwapDiff doRevertIcon()
+	{
+		return doRevertIcon(SwapMode.REVERT);
+	}
+
+	private SwapDiff doRevertIcon(SwapMode mode)
 	{
 		JawIcon revertIcon = savedSwaps.getRealIcon();
 		if (revertIcon == null)
@@ -2123,9 +2432,8 @@ public class SwapManager
 			if (kitId != null)
 			{
 				Map<SwapDiff.Change.Type, SwapDiff.Change> changes = swap(KitType.JAW, kitId + KIT_OFFSET,
-					SwapMode.PREVIEW, SwapMode.REVERT, false);
-				SwapDiff.Change iconChange = changes.get(SwapDiff.Change.Type.ICON);
-				return new SwapDiff(new HashMap<>(), new HashMap<>(), iconChange, null);
+					SwapMode.PREVIEW, mode, false);
+				return SwapDiff.builder().icon(changes.get(SwapDiff.Change.Type.ICON)).build();
 			}
 		}
 		return SwapDiff.blank();
@@ -2196,55 +2504,6 @@ public class SwapManager
 			.orElse(null);
 	}
 
-	/**
-	 * @return true if the slot does not have an item (real or virtual) obscuring it (directly or indirectly)
-	 */
-	private boolean isOpen(KitType slot)
-	{
-		if (slot == null || savedSwaps.isKitLocked(slot) || savedSwaps.containsItem(slot))
-		{
-			return false;
-		}
-		Supplier<Boolean> fallback = () -> {
-			if (equipmentIdInSlot(slot) > 0)
-			{
-				// equipment id must be a kit since there can't be an item at this point
-				return true;
-			}
-			else
-			{
-				Integer actualEquipId = inventoryItemId(slot);
-				return actualEquipId == null || actualEquipId < ITEM_OFFSET;
-			}
-		};
-		switch (slot)
-		{
-			case HAIR:
-			case JAW:
-				int headEquipId = equipmentIdInSlot(KitType.HEAD);
-				if (headEquipId > ITEM_OFFSET)
-				{
-					int headItemId = headEquipId - ITEM_OFFSET;
-					if (slot == KitType.HAIR)
-					{
-						return ItemInteractions.HAIR_HELMS.contains(headItemId);
-					}
-					return !ItemInteractions.NO_JAW_HELMS.contains(headItemId);
-				}
-				return fallback.get();
-			case ARMS:
-				int torsoEquipId = equipmentIdInSlot(KitType.TORSO);
-				if (torsoEquipId > ITEM_OFFSET)
-				{
-					int torsoItemId = torsoEquipId - ITEM_OFFSET;
-					return ItemInteractions.ARMS_TORSOS.contains(torsoItemId);
-				}
-				return fallback.get();
-			default:
-				return fallback.get();
-		}
-	}
-
 	@Nullable
 	private ItemEquipmentStats equipmentStatsFor(int itemId)
 	{
@@ -2274,12 +2533,12 @@ public class SwapManager
 			switch (kitType)
 			{
 				case HEAD:
-					realItemHidden = (!ItemInteractions.HAIR_HELMS.contains(realItemId) &&
+					realItemHidden = (!slotRules.showsHair(realItemId) &&
 						savedSwaps.containsSlot(KitType.HAIR)) ||
-						(ItemInteractions.NO_JAW_HELMS.contains(realItemId) && savedSwaps.containsSlot(KitType.JAW));
+						(slotRules.hidesJaw(realItemId) && savedSwaps.containsSlot(KitType.JAW));
 					break;
 				case TORSO:
-					realItemHidden = !ItemInteractions.ARMS_TORSOS.contains(realItemId) &&
+					realItemHidden = !slotRules.showsArms(realItemId) &&
 						savedSwaps.containsSlot(KitType.ARMS);
 					break;
 				default:
@@ -2295,7 +2554,7 @@ public class SwapManager
 			int jawEquipId = combineJawIcon(null, null);
 			int headEquipId = equipmentIdInSlot(KitType.HEAD);
 			boolean jawlessIcon = jawEquipId >= ITEM_OFFSET && JawKit.isNoJawIcon(jawEquipId - ITEM_OFFSET);
-			if (!ItemInteractions.NO_JAW_HELMS.contains(headEquipId - ITEM_OFFSET) || jawEquipId <= 0 || jawlessIcon)
+			if (!slotRules.hidesJaw(headEquipId - ITEM_OFFSET) || jawEquipId <= 0 || jawlessIcon)
 			{
 				return jawEquipId;
 			}
@@ -2362,7 +2621,7 @@ public class SwapManager
 	private SwapDiff restore(SwapDiff swapDiff, boolean save)
 	{
 		Function<KitType, SwapMode> swapModeProvider = (slot) -> {
-			SwapDiff.Change change = swapDiff.getSlotChanges().get(slot);
+			SwapDiff.Change change = swapDiff.getSlotChange(slot);
 			return !save ? SwapMode.PREVIEW : change != null && change.isUnnatural() ?
 				SwapMode.SAVE :
 				SwapMode.REVERT;
@@ -2372,34 +2631,40 @@ public class SwapManager
 			iconChange.isUnnatural() ? SwapMode.SAVE : SwapMode.REVERT;
 		JawIcon icon = iconChange != null ? JawIcon.fromId(iconChange.getId()) : null;
 		// restore kits and items
-		Map<KitType, Integer> restoreEquipIds = sanitize(
-			swapDiff.getSlotChanges().entrySet().stream().collect(
-				Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getId()))
-		);
+		Map<KitType, Integer> changedEquipIds = new HashMap<>();
+		for (KitType slot : KitType.values())
+		{
+			SwapDiff.Change change = swapDiff.getSlotChange(slot);
+			if (change != null)
+			{
+				changedEquipIds.put(slot, change.getId());
+			}
+		}
+		Map<KitType, Integer> restoreEquipIds = sanitize(changedEquipIds);
 		SwapDiff slotRestore = CompoundSwap.fromMap(restoreEquipIds, icon)
 			.stream()
 			.map(c -> this.swap(c, false, swapModeProvider, iconSwapMode))
 			.reduce(SwapDiff::mergeOver)
 			.orElse(SwapDiff.blank());
-		SwapDiff colorRestore = swapDiff.getColorChanges().entrySet()
-			.stream()
-			.map(e -> {
-				ColorType type = e.getKey();
-				SwapDiff.Change change = e.getValue();
-				int colorId = change.getId();
-				SwapMode mode;
-				if (save)
-				{
-					mode = change.isUnnatural() ? SwapMode.SAVE : SwapMode.REVERT;
-				}
-				else
-				{
-					mode = SwapMode.PREVIEW;
-				}
-				return swap(type, colorId, mode);
-			})
-			.reduce(SwapDiff::mergeOver)
-			.orElse(SwapDiff.blank());
+		SwapDiff colorRestore = SwapDiff.blank();
+		for (ColorType type : ColorType.values())
+		{
+			SwapDiff.Change change = swapDiff.getColorChange(type);
+			if (change == null)
+			{
+				continue;
+			}
+			SwapMode mode;
+			if (save)
+			{
+				mode = change.isUnnatural() ? SwapMode.SAVE : SwapMode.REVERT;
+			}
+			else
+			{
+				mode = SwapMode.PREVIEW;
+			}
+			colorRestore = colorRestore.mergeOver(swap(type, change.getId(), mode));
+		}
 		return slotRestore.mergeOver(colorRestore);
 	}
 
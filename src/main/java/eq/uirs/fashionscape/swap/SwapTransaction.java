@@ -0,0 +1,156 @@
+package eq.uirs.fashionscape.swap;
+
+import eq.uirs.fashionscape.data.ColorType;
+import eq.uirs.fashionscape.data.kit.JawIcon;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Item, kit, color and icon changes that are staged and then applied together, producing a single combined diff.
+ * Created by {@link SwapManager#transact}; can only be used on the client thread.
+ */
+class SwapTransaction
+{
+	private final SwapManager swapManager;
+
+	// slot -> equipment id, 0 to hide the slot
+	private final Map<KitType, Integer> equipIds = new HashMap<>();
+	private final Map<ColorType, Integer> colorIds = new HashMap<>();
+	private JawIcon icon = null;
+	// reverted back to what the player actually wears, before anything put in the same flush
+	private final Set<KitType> revertSlots = EnumSet.noneOf(KitType.class);
+	private final Set<ColorType> revertColorTypes = EnumSet.noneOf(ColorType.class);
+	private boolean revertIcon = false;
+	private SwapMode revertMode = SwapMode.REVERT;
+	// everything applied so far. earlier diffs take priority, since they hold the state from before the transaction
+	private SwapDiff diff = SwapDiff.blank();
+	private boolean committed = false;
+
+	SwapTransaction(SwapManager swapManager)
+	{
+		this.swapManager = swapManager;
+	}
+
+	SwapTransaction putItem(KitType slot, int itemId)
+	{
+		return putEquipmentId(slot, itemId + SwapManager.ITEM_OFFSET);
+	}
+
+	SwapTransaction putKit(KitType slot, int kitId)
+	{
+		return putEquipmentId(slot, kitId + SwapManager.KIT_OFFSET);
+	}
+
+	SwapTransaction putNothing(KitType slot)
+	{
+		return putEquipmentId(slot, 0);
+	}
+
+	SwapTransaction putEquipmentId(KitType slot, int equipId)
+	{
+		checkOpen();
+		equipIds.put(slot, equipId);
+		return this;
+	}
+
+	SwapTransaction putColor(ColorType type, int colorId)
+	{
+		checkOpen();
+		colorIds.put(type, colorId);
+		return this;
+	}
+
+	SwapTransaction putIcon(@Nullable JawIcon icon)
+	{
+		checkOpen();
+		if (icon != null)
+		{
+			this.icon = icon;
+		}
+		return this;
+	}
+
+	SwapTransaction revertSlot(KitType slot)
+	{
+		checkOpen();
+		revertSlots.add(slot);
+		return this;
+	}
+
+	SwapTransaction revertColor(ColorType type)
+	{
+		checkOpen();
+		revertColorTypes.add(type);
+		return this;
+	}
+
+	SwapTransaction revertIcon()
+	{
+		checkOpen();
+		revertIcon = true;
+		return this;
+	}
+
+	/**
+	 * reverts only change what's shown, keeping saved swaps (e.g., while shutting down)
+	 */
+	SwapTransaction previewReverts()
+	{
+		checkOpen();
+		revertMode = SwapMode.PREVIEW;
+		return this;
+	}
+
+	/**
+	 * adds the diff of a swap made directly (rather than staged) during the transaction
+	 */
+	SwapTransaction include(SwapDiff swapDiff)
+	{
+		checkOpen();
+		diff = diff.mergeOver(swapDiff);
+		return this;
+	}
+
+	/**
+	 * applies everything staged so far, for when later changes depend on what's actually worn
+	 */
+	void flush()
+	{
+		checkOpen();
+		if (!revertSlots.isEmpty() || !revertColorTypes.isEmpty() || revertIcon)
+		{
+			diff = diff.mergeOver(swapManager.applyReverts(revertSlots, revertColorTypes, revertIcon, revertMode));
+			revertSlots.clear();
+			revertColorTypes.clear();
+			revertIcon = false;
+		}
+		if (equipIds.isEmpty() && colorIds.isEmpty() && icon == null)
+		{
+			return;
+		}
+		SwapDiff applied = swapManager.applyStaged(equipIds, icon, colorIds);
+		equipIds.clear();
+		colorIds.clear();
+		icon = null;
+		diff = diff.mergeOver(applied);
+	}
+
+	SwapDiff commit()
+	{
+		flush();
+		committed = true;
+		return diff;
+	}
+
+	private void checkOpen()
+	{
+		if (committed)
+		{
+			throw new IllegalStateException("transaction already committed");
+		}
+	}
+}
@@ -11,4 +11,16 @@ public class ColorChanged extends SwapEvent
 	ColorType type;
 	// will be null if color reverted
 	Integer colorId;
+
+	@Override
+	public SwapEventType getEventType()
+	{
+		return SwapEventType.COLOR_CHANGED;
+	}
+
+	@Override
+	public int getBatchIndex()
+	{
+		return type.ordinal();
+	}
 }
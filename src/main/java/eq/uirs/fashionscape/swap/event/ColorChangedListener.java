@@ -10,8 +10,8 @@ public class ColorChangedListener extends SwapEventListener<ColorChanged>
 	}
 
 	@Override
-	Class<ColorChanged> getEventClass()
+	public SwapEventType getEventType()
 	{
-		return ColorChanged.class;
+		return SwapEventType.COLOR_CHANGED;
 	}
 }
@@ -10,4 +10,16 @@ public class ColorLockChanged extends SwapEvent
 {
 	ColorType type;
 	boolean isLocked;
+
+	@Override
+	public SwapEventType getEventType()
+	{
+		return SwapEventType.COLOR_LOCK_CHANGED;
+	}
+
+	@Override
+	public int getBatchIndex()
+	{
+		return type.ordinal();
+	}
 }
@@ -10,8 +10,8 @@ public class ColorLockChangedListener extends SwapEventListener<ColorLockChanged
 	}
 
 	@Override
-	Class<ColorLockChanged> getEventClass()
+	public SwapEventType getEventType()
 	{
-		return ColorLockChanged.class;
+		return SwapEventType.COLOR_LOCK_CHANGED;
 	}
 }
@@ -9,4 +9,10 @@ import lombok.Value;
 public class IconChanged extends SwapEvent
 {
 	JawIcon icon;
+
+	@Override
+	public SwapEventType getEventType()
+	{
+		return SwapEventType.ICON_CHANGED;
+	}
 }
@@ -10,8 +10,8 @@ public class IconChangedListener extends SwapEventListener<IconChanged>
 	}
 
 	@Override
-	Class<IconChanged> getEventClass()
+	public SwapEventType getEventType()
 	{
-		return IconChanged.class;
+		return SwapEventType.ICON_CHANGED;
 	}
 }
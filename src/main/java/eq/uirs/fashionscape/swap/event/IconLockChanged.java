@@ -8,5 +8,10 @@ import lombok.Value;
 public class IconLockChanged extends SwapEvent
 {
 	boolean isLocked;
-}
 
+	@Override
+	public SwapEventType getEventType()
+	{
+		return SwapEventType.ICON_LOCK_CHANGED;
+	}
+}
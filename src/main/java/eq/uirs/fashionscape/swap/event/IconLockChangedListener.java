@@ -10,8 +10,8 @@ public class IconLockChangedListener extends SwapEventListener<IconLockChanged>
 	}
 
 	@Override
-	Class<IconLockChanged> getEventClass()
+	public SwapEventType getEventType()
 	{
-		return IconLockChanged.class;
+		return SwapEventType.ICON_LOCK_CHANGED;
 	}
 }
@@ -11,4 +11,16 @@ public class ItemChanged extends SwapEvent
 	KitType slot;
 	// will be null if a virtual item has been removed, and -1 when item is hidden (over a real item)
 	Integer itemId;
+
+	@Override
+	public SwapEventType getEventType()
+	{
+		return SwapEventType.ITEM_CHANGED;
+	}
+
+	@Override
+	public int getBatchIndex()
+	{
+		return slot.ordinal();
+	}
 }
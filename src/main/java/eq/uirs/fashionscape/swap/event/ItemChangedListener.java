@@ -10,8 +10,8 @@ public class ItemChangedListener extends SwapEventListener<ItemChanged>
 	}
 
 	@Override
-	Class<ItemChanged> getEventClass()
+	public SwapEventType getEventType()
 	{
-		return ItemChanged.class;
+		return SwapEventType.ITEM_CHANGED;
 	}
 }
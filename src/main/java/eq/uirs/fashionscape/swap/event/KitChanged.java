@@ -11,4 +11,16 @@ public class KitChanged extends SwapEvent
 	KitType slot;
 	// will be null if kit removed
 	Integer kitId;
+
+	@Override
+	public SwapEventType getEventType()
+	{
+		return SwapEventType.KIT_CHANGED;
+	}
+
+	@Override
+	public int getBatchIndex()
+	{
+		return slot.ordinal();
+	}
 }
@@ -10,8 +10,8 @@ public class KitChangedListener extends SwapEventListener<KitChanged>
 	}
 
 	@Override
-	Class<KitChanged> getEventClass()
+	public SwapEventType getEventType()
 	{
-		return KitChanged.class;
+		return SwapEventType.KIT_CHANGED;
 	}
 }
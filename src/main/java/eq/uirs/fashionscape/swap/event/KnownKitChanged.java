@@ -14,4 +14,16 @@ public class KnownKitChanged extends SwapEvent
 {
 	boolean unknown;
 	KitType slot;
+
+	@Override
+	public SwapEventType getEventType()
+	{
+		return SwapEventType.KNOWN_KIT_CHANGED;
+	}
+
+	@Override
+	public int getBatchIndex()
+	{
+		return slot.ordinal();
+	}
 }
@@ -10,8 +10,8 @@ public class KnownKitChangedListener extends SwapEventListener<KnownKitChanged>
 	}
 
 	@Override
-	Class<KnownKitChanged> getEventClass()
+	public SwapEventType getEventType()
 	{
-		return KnownKitChanged.class;
+		return SwapEventType.KNOWN_KIT_CHANGED;
 	}
 }
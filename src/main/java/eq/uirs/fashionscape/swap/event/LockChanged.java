@@ -8,10 +8,24 @@ import net.runelite.api.kit.KitType;
 @Value
 public class LockChanged extends SwapEvent
 {
+	private static final int LOCK_TYPES = Type.values().length;
+
 	KitType slot;
 	boolean isLocked;
 	Type type;
 
+	@Override
+	public SwapEventType getEventType()
+	{
+		return SwapEventType.LOCK_CHANGED;
+	}
+
+	@Override
+	public int getBatchIndex()
+	{
+		return slot.ordinal() * LOCK_TYPES + type.ordinal();
+	}
+
 	public enum Type
 	{
 		ITEM,
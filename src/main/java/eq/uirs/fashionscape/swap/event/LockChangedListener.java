@@ -10,8 +10,8 @@ public class LockChangedListener extends SwapEventListener<LockChanged>
 	}
 
 	@Override
-	Class<LockChanged> getEventClass()
+	public SwapEventType getEventType()
 	{
-		return LockChanged.class;
+		return SwapEventType.LOCK_CHANGED;
 	}
 }
@@ -2,8 +2,14 @@ package eq.uirs.fashionscape.swap.event;
 
 public abstract class SwapEvent
 {
-	public String getKey()
+	public abstract SwapEventType getEventType();
+
+	/**
+	 * tells apart events of the same type that are about different things (e.g., slots), so that when events are
+	 * coalesced only the latest one for each is kept. Always less than the type's batch size.
+	 */
+	public int getBatchIndex()
 	{
-		return this.getClass().getName();
+		return 0;
 	}
 }
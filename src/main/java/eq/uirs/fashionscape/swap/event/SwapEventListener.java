@@ -1,5 +1,6 @@
 package eq.uirs.fashionscape.swap.event;
 
+import java.util.List;
 import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 
@@ -8,11 +9,19 @@ public abstract class SwapEventListener<T extends SwapEvent>
 {
 	private final Consumer<T> consumer;
 
-	abstract Class<T> getEventClass();
+	public abstract SwapEventType getEventType();
 
-	public String getKey()
+	/**
+	 * receives one tick's events of type T, at most one per slot. the list is read-only and reused for the next
+	 * tick's events, so it shouldn't be kept
+	 */
+	public void onEvents(List<SwapEvent> events)
 	{
-		return getEventClass().getName();
+		// indexed rather than iterated, so that delivery doesn't allocate
+		for (int i = 0; i < events.size(); i++)
+		{
+			onEvent(events.get(i));
+		}
 	}
 
 	// onEvent is only ever called for events of type T
@@ -0,0 +1,26 @@
+package eq.uirs.fashionscape.swap.event;
+
+import eq.uirs.fashionscape.data.ColorType;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Every kind of swap event, so that listeners and pending events can be kept in arrays indexed by ordinal.
+ */
+@RequiredArgsConstructor
+public enum SwapEventType
+{
+	ITEM_CHANGED(KitType.values().length),
+	KIT_CHANGED(KitType.values().length),
+	COLOR_CHANGED(ColorType.values().length),
+	ICON_CHANGED(1),
+	LOCK_CHANGED(KitType.values().length * LockChanged.Type.values().length),
+	COLOR_LOCK_CHANGED(ColorType.values().length),
+	ICON_LOCK_CHANGED(1),
+	KNOWN_KIT_CHANGED(KitType.values().length);
+
+	// how many events of this type can be pending at once, i.e., the number of distinct batch indices
+	@Getter
+	private final int batchSize;
+}
@@ -0,0 +1,100 @@
+package eq.uirs.fashionscape.swap;
+
+import com.google.gson.Gson;
+import eq.uirs.fashionscape.colors.ColorHarmony;
+import eq.uirs.fashionscape.colors.ColorScorer;
+import eq.uirs.fashionscape.data.ColorType;
+import eq.uirs.fashionscape.data.Colorable;
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import net.runelite.api.Client;
+import net.runelite.api.kit.KitType;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShufflePlannerTest
+{
+	// items that have colours in colors.json, so that intelligent modes have something to score
+	private static final int[] POOL = {35, 48, 54, 58, 62, 66, 70, 74, 84, 86, 87, 88, 24617, 24664, 24666, 24668};
+	// base model slots without items, so that kits get picked too
+	private static final Set<KitType> KIT_ONLY_SLOTS = EnumSet.of(KitType.HAIR, KitType.JAW, KitType.ARMS);
+
+	private ShufflePlanner planner;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		// planning only needs the bundled item colours, not the client
+		Constructor<ColorScorer> constructor = ColorScorer.class.getDeclaredConstructor(Client.class,
+			SwapManager.class, Gson.class);
+		constructor.setAccessible(true);
+		ColorScorer colorScorer = constructor.newInstance(null, null, new Gson());
+		SlotRules slotRules = new SlotRules(null, null, null)
+		{
+			@Override
+			public boolean isTwoHanded(@Nullable Integer itemId)
+			{
+				return itemId != null && itemId % 4 == 0;
+			}
+		};
+		planner = new ShufflePlanner(colorScorer, slotRules, null);
+	}
+
+	@Test
+	public void sameSeedAndContextGiveSamePlan()
+	{
+		for (RandomizerIntelligence intelligence : RandomizerIntelligence.values())
+		{
+			ShuffleContext context = context(intelligence);
+			ShufflePlan first = planner.plan(context, 12345L, false);
+			ShufflePlan second = planner.plan(context(intelligence), 12345L, false);
+			assertEquals(intelligence.name(), first, second);
+		}
+	}
+
+	@Test
+	public void timedPlanReplaysFromItsSeed()
+	{
+		ShuffleContext context = context(RandomizerIntelligence.TIMED);
+		// samples until the time budget runs out, so how many depends on the machine
+		ShufflePlan timed = planner.plan(context, 12345L, true);
+		ShufflePlan replayed = planner.plan(context, ShufflePlanner.replaySeed(timed), false);
+		assertEquals(timed, replayed);
+	}
+
+	private static ShuffleContext context(RandomizerIntelligence intelligence)
+	{
+		int[][] pools = new int[KitType.values().length][];
+		for (KitType slot : KitType.values())
+		{
+			pools[slot.ordinal()] = KIT_ONLY_SLOTS.contains(slot) ? new int[0] : POOL.clone();
+		}
+		// a locked item, so that intelligent modes draw from weighted tables
+		Map<KitType, Integer> lockedItems = new HashMap<>();
+		lockedItems.put(KitType.CAPE, 24617);
+		Map<ColorType, Colorable> lockedColors = new HashMap<>();
+		return new ShuffleContext(
+			EnumSet.of(KitType.CAPE),
+			Collections.emptySet(),
+			false,
+			false,
+			false,
+			true,
+			lockedItems,
+			lockedColors,
+			intelligence,
+			ColorHarmony.ANALOGOUS,
+			20,
+			0,
+			EnumSet.allOf(KitType.class),
+			null,
+			pools
+		);
+	}
+}